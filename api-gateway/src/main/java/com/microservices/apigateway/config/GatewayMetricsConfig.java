@@ -0,0 +1,25 @@
+package com.microservices.apigateway.config;
+
+import io.micrometer.core.instrument.Tags;
+import org.springframework.cloud.gateway.support.tagsprovider.GatewayTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+@Configuration(proxyBeanMethods = false)
+public class GatewayMetricsConfig {
+
+    // Adds the upstream instance (resolved by the load balancer) to the tags of spring.cloud.gateway.requests,
+    // next to the built-in routeId, routeUri, httpMethod, httpStatusCode and outcome tags
+    @Bean
+    public GatewayTagsProvider upstreamInstanceTagsProvider() {
+        return exchange -> {
+            URI requestUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+            return Tags.of("upstreamInstance", requestUrl == null || requestUrl.getHost() == null
+                    ? "none" : requestUrl.getHost() + ":" + requestUrl.getPort());
+        };
+    }
+}
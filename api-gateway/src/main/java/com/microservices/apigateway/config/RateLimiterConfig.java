@@ -0,0 +1,29 @@
+package com.microservices.apigateway.config;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+@Configuration(proxyBeanMethods = false)
+public class RateLimiterConfig {
+
+    // Rate limit per user, or per client for tokens without a user (e.g. client credentials)
+    // Requests without a key are denied by RequestRateLimiter (deny-empty-key defaults to true)
+    @Bean
+    public KeyResolver principalKeyResolver() {
+        return exchange -> exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .cast(JwtAuthenticationToken.class)
+                .mapNotNull(authentication -> {
+                    Jwt jwt = authentication.getToken();
+                    String username = jwt.getClaimAsString("preferred_username");
+                    if (username != null) {
+                        return "user:" + username;
+                    }
+                    String clientId = jwt.getClaimAsString("azp");
+                    return clientId != null ? "client:" + clientId : null;
+                });
+    }
+}
@@ -1,5 +1,8 @@
 package com.microservices.apigateway.config;
 
+import com.microservices.apigateway.security.CachingReactiveJwtDecoder;
+import com.microservices.apigateway.security.RefreshingJwkSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,10 +10,21 @@ import org.springframework.security.config.annotation.web.reactive.EnableWebFlux
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.*;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebFluxSecurity
@@ -22,9 +36,21 @@ public class SecurityConfig {
     private String resourceServerAudience;
     @Value("${spring.security.oauth2.resourceserver.jwt.type}")
     private String jwtType;
+    @Value("${gateway.jwt-cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+    @Value("${gateway.jwks.snapshot-path:}")
+    private String jwksSnapshotPath;
+    @Value("${gateway.jwks.refresh-interval:5m}")
+    private Duration jwksRefreshInterval;
+    @Value("${gateway.jwks.min-refresh-interval:30s}")
+    private Duration jwksMinRefreshInterval;
+    @Value("${gateway.actuator.role:admin}")
+    private String actuatorRole;
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity serverHttpSecurity) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity serverHttpSecurity, ReactiveJwtDecoder jwtDecoder) {
 //        serverHttpSecurity.cors(
 ////                corsSpec -> corsSpec.configurationSource(
 ////                        serverWebExchange -> {
@@ -40,6 +66,7 @@ public class SecurityConfig {
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)                // disable CSRF for Postman testing
                 .authorizeExchange(exchange -> exchange
                         .pathMatchers("/eureka/**").permitAll() // permit all requests to /eureka/**
+                        .pathMatchers("/actuator/**").hasRole(actuatorRole)  // e.g. POST /actuator/jwtcache evicts cached tokens
                         .anyExchange().authenticated()                    // authenticate all other requests
                 )
                 /*
@@ -49,14 +76,46 @@ public class SecurityConfig {
                             .jwt(withDefaults()));
                  */
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtDecoder(jwtDecoder())));
+                        .jwt(jwt -> jwt
+                                .jwtDecoder(jwtDecoder)
+                                .jwtAuthenticationConverter(jwtAuthenticationConverter())));
 
         return serverHttpSecurity.build();
     }
 
+    /**
+     * Grants the scopes (SCOPE_xxx) as Spring Security does by default, plus the Keycloak realm roles (ROLE_xxx), which
+     * Keycloak puts in the "realm_access" claim: {"realm_access": {"roles": ["admin", ...]}}
+     */
+    private static ReactiveJwtAuthenticationConverterAdapter jwtAuthenticationConverter() {
+        JwtGrantedAuthoritiesConverter scopesConverter = new JwtGrantedAuthoritiesConverter();
+        JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
+        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwt -> {
+            Collection<GrantedAuthority> authorities = new ArrayList<>(scopesConverter.convert(jwt));
+            Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+            if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+                roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+            }
+            return authorities;
+        });
+        return new ReactiveJwtAuthenticationConverterAdapter(jwtAuthenticationConverter);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public RefreshingJwkSource jwkSource(WebClient.Builder webClientBuilder) {
+        return new RefreshingJwkSource(
+                webClientBuilder.build(),
+                jwkSetUri,
+                jwksSnapshotPath.isEmpty() ? null : Path.of(jwksSnapshotPath),
+                jwksRefreshInterval,
+                jwksMinRefreshInterval);
+    }
+
     @Bean
-    public NimbusReactiveJwtDecoder jwtDecoder() {
-        NimbusReactiveJwtDecoder jwtDecoder = (NimbusReactiveJwtDecoder) ReactiveJwtDecoders.fromIssuerLocation(issuerUri);
+    public CachingReactiveJwtDecoder jwtDecoder(RefreshingJwkSource jwkSource, MeterRegistry meterRegistry) {
+        // ReactiveJwtDecoders.fromIssuerLocation(issuerUri) would fetch the OIDC discovery document during startup, and
+        // fail the startup if the identity provider is slow or down. Instead, the keys are fetched in the background.
+        NimbusReactiveJwtDecoder jwtDecoder = NimbusReactiveJwtDecoder.withJwkSource(jwkSource).build();
         OAuth2TokenValidator<Jwt> oAuth2TokenValidator = new DelegatingOAuth2TokenValidator<>(
                 new JwtTimestampValidator(),
                 new JwtIssuerValidator(issuerUri),
@@ -69,6 +128,7 @@ public class SecurityConfig {
         );
         jwtDecoder.setJwtValidator(oAuth2TokenValidator);
 
-        return jwtDecoder;
+        // Skip the RSA signature verification and claim validation for tokens that were already decoded
+        return new CachingReactiveJwtDecoder(jwtDecoder, jwtCacheMaxSize, meterRegistry);
     }
 }
\ No newline at end of file
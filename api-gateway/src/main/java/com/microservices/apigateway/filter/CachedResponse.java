@@ -0,0 +1,75 @@
+package com.microservices.apigateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Fully buffered copy of an upstream response, which can be replayed to other clients.
+ */
+record CachedResponse(HttpStatusCode statusCode, HttpHeaders headers, byte[] body) {
+
+    Mono<Void> writeTo(ServerHttpResponse response) {
+        response.setStatusCode(statusCode);
+        response.getHeaders().putAll(headers);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Decorates the response so that its body is copied as it is written to the client, and handed to the consumer once
+     * complete.
+     * Streaming responses (e.g. server-sent events) are passed through without being captured.
+     * The filter using this must run before NettyWriteResponseFilter, which writes the upstream body to the response.
+     */
+    static ServerHttpResponseDecorator capture(ServerHttpResponse response, Consumer<CachedResponse> consumer) {
+        return capture(response, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Same as above, but a body larger than maxBodySize is not captured: the consumer is not called, and the rest of the
+     * body is written to the client as it arrives.
+     */
+    static ServerHttpResponseDecorator capture(ServerHttpResponse response, long maxBodySize, Consumer<CachedResponse> consumer) {
+        return new ServerHttpResponseDecorator(response) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                ByteArrayOutputStream captured = new ByteArrayOutputStream();
+                AtomicBoolean tooLarge = new AtomicBoolean();
+
+                Flux<DataBuffer> buffers = Flux.from(body).map(buffer -> {
+                    if (tooLarge.get()) {
+                        return buffer;
+                    }
+                    if (captured.size() + (long) buffer.readableByteCount() > maxBodySize) {
+                        tooLarge.set(true);
+                        captured.reset();
+                        return buffer;
+                    }
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    captured.writeBytes(bytes);
+                    return bufferFactory().wrap(bytes);
+                });
+
+                return super.writeWith(buffers.doOnComplete(() -> {
+                    if (!tooLarge.get() && getStatusCode() != null) {
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.putAll(getHeaders());
+                        consumer.accept(new CachedResponse(getStatusCode(), headers, captured.toByteArray()));
+                    }
+                }));
+            }
+        };
+    }
+}
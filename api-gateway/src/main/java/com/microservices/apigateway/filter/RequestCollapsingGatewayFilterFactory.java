@@ -0,0 +1,143 @@
+package com.microservices.apigateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Collapses identical concurrent GET requests into a single upstream request ("singleflight"), e.g.
+ * spring.cloud.gateway.routes[0].filters[1]=RequestCollapsing=1000
+ *
+ * Requests are identical when they have the same route, path, query, key headers and granted authorities (roles and
+ * scopes), so a response is only shared between callers who are allowed to see the same thing. The first request goes
+ * upstream, and the requests arriving while it is in flight wait for its response (up to maxWaiters of them, the next
+ * ones go upstream on their own). Unlike ResponseCache, nothing is kept once the upstream response is received.
+ * Behind ResponseCache, it collapses the requests the cache lets through: the ones bypassing it (Cache-Control:
+ * no-cache), and the ones for responses it does not keep (no-store from upstream, or larger than maxEntrySize).
+ */
+@Component
+public class RequestCollapsingGatewayFilterFactory extends AbstractGatewayFilterFactory<RequestCollapsingGatewayFilterFactory.Config> {
+    private final MeterRegistry meterRegistry;
+    private final Map<String, InFlight> inFlightRequests = new ConcurrentHashMap<>();
+
+    public RequestCollapsingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxWaiters");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Counter collapsed = meterRegistry.counter("gateway.requests.collapsed", "route", String.valueOf(config.getRouteId()));
+
+        // Must run before NettyWriteResponseFilter writes the upstream body, so that the body can be captured
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            return exchange.getPrincipal()
+                    .map(RequestCollapsingGatewayFilterFactory::authoritiesKey)
+                    .defaultIfEmpty("")
+                    .flatMap(authorities -> collapse(exchange, chain, config, collapsed,
+                            collapsingKey(config, exchange.getRequest(), authorities)));
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> collapse(ServerWebExchange exchange, GatewayFilterChain chain, Config config, Counter collapsed,
+                                String key) {
+        InFlight inFlight = new InFlight(Sinks.one(), new AtomicInteger());
+        InFlight leader = inFlightRequests.putIfAbsent(key, inFlight);
+        if (leader == null) {
+            return forward(exchange, chain, key, inFlight);
+        }
+
+        if (leader.waiters().incrementAndGet() > config.getMaxWaiters()) {
+            return chain.filter(exchange);
+        }
+        return leader.response().asMono()
+                .timeout(config.getWaitTimeout(), Mono.empty())
+                .flatMap(response -> {
+                    collapsed.increment();
+                    return response.writeTo(exchange.getResponse());
+                })
+                // The leader failed, streamed its response or was too slow, so go upstream after all
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange)));
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, String key, InFlight inFlight) {
+        return chain.filter(exchange.mutate()
+                        .response(CachedResponse.capture(exchange.getResponse(), captured -> {
+                            // Requests arriving from now on must not get this response, as it is no longer in flight
+                            inFlightRequests.remove(key, inFlight);
+                            inFlight.response().tryEmitValue(captured);
+                        }))
+                        .build())
+                .doFinally(signal -> {
+                    inFlightRequests.remove(key, inFlight);
+                    inFlight.response().tryEmitEmpty();     // No-op if the response was already emitted
+                });
+    }
+
+    private static String collapsingKey(Config config, ServerHttpRequest request, String authorities) {
+        StringBuilder key = new StringBuilder(String.valueOf(config.getRouteId()))
+                .append('|').append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : config.getKeyHeaders()) {
+            key.append('|').append(header).append('=').append(String.join(",", request.getHeaders().getOrEmpty(header)));
+        }
+        return key.append('|').append(authorities).toString();
+    }
+
+    // The roles and scopes (see SecurityConfig), sorted, rather than the token, so that callers with the same
+    // authorities share a response. A principal without authorities only shares its responses with itself
+    private static String authoritiesKey(Principal principal) {
+        if (principal instanceof Authentication authentication) {
+            return authentication.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .sorted()
+                    .collect(Collectors.joining(","));
+        }
+        return "principal=" + principal.getName();
+    }
+
+    private record InFlight(Sinks.One<CachedResponse> response, AtomicInteger waiters) {
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private int maxWaiters = 1000;
+        private Duration waitTimeout = Duration.ofSeconds(10);
+        private List<String> keyHeaders = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        private String routeId;
+    }
+}
@@ -0,0 +1,269 @@
+package com.microservices.apigateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.tagsprovider.GatewayTagsProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded in-memory cache for GET routes, configured per route, e.g.
+ * spring.cloud.gateway.routes[0].filters[0]=ResponseCache=60s,10MB,1MB
+ *
+ * The cache key is the path, the query and the configured key headers. As the cache is shared across users, only apply
+ * it to routes whose responses do not depend on the caller (or add Authorization to the key headers).
+ * Cache-Control from both the client and upstream is respected, and cached ETags are answered with 304 Not Modified.
+ * When an entry is missing or expired, only one request refills it from upstream, and concurrent requests wait for it.
+ * Responses larger than maxEntrySize are not cached, and are streamed to the client instead of being buffered.
+ * Responses served from the cache never reach the gateway's metrics filter, so they are recorded here in the same
+ * spring.cloud.gateway.requests timer, with outcome=cache-hit, to keep the per-route latency histograms complete.
+ */
+@Component
+@Slf4j
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+    private static final Pattern MAX_AGE = Pattern.compile("(?:s-maxage|max-age)=(\\d+)");
+    private static final String REQUESTS_METRIC = "spring.cloud.gateway.requests";
+    private static final String CACHE_HIT_OUTCOME = "cache-hit";
+
+    private final MeterRegistry meterRegistry;
+    // The same tags as the gateway's metrics filter (route, method, status, upstream instance...)
+    private final GatewayTagsProvider tagsProvider;
+    private final LongSupplier nanoClock;
+    // Kept per route across route refreshes, so the cache and its metrics survive a refresh (unless its config changed)
+    private final Map<String, RouteCache> routeCaches = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry, List<GatewayTagsProvider> tagsProviders) {
+        this(meterRegistry, tagsProviders, System::nanoTime);
+    }
+
+    public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry, List<GatewayTagsProvider> tagsProviders,
+                                             LongSupplier nanoClock) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.tagsProvider = tagsProviders.stream().reduce(exchange -> Tags.empty(), GatewayTagsProvider::and);
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("timeToLive", "maxSize", "maxEntrySize");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RouteCache routeCache = routeCaches.compute(config.getRouteId(), (routeId, existing) -> {
+            if (existing != null && existing.config().equals(config)) {
+                return existing;
+            }
+            if (existing != null) {
+                // The TTL, sizes or key headers changed, so the entries cached with the previous config are dropped
+                removeMetrics(routeId);
+            }
+            return createRouteCache(routeId, config);
+        });
+
+        // Must run before NettyWriteResponseFilter writes the upstream body, so that the body can be captured
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String key = cacheKey(request, config.getKeyHeaders());
+            String requestCacheControl = cacheControl(request.getHeaders());
+            boolean bypass = requestCacheControl.contains("no-cache") || requestCacheControl.contains("no-store");
+
+            if (!bypass) {
+                Entry cached = routeCache.cache().getIfPresent(key);
+                if (cached != null) {
+                    return serve(exchange, cached.response(), sample);
+                }
+            }
+            return fetch(exchange, chain, key, config, routeCache, bypass, sample);
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private RouteCache createRouteCache(String routeId, Config config) {
+        Cache<String, Entry> cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxSize().toBytes())   // Size-based eviction on the total body size
+                .weigher((String key, Entry entry) -> key.length() + entry.response().body().length)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.timeToLive().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.timeToLive().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(nanoClock::getAsLong)
+                .recordStats()
+                .build();
+
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size at /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName(routeId));
+        return new RouteCache(config, cache, new ConcurrentHashMap<>());
+    }
+
+    private void removeMetrics(String routeId) {
+        meterRegistry.getMeters().stream()
+                .filter(meter -> cacheName(routeId).equals(meter.getId().getTag("cache")))
+                .toList()
+                .forEach(meterRegistry::remove);
+    }
+
+    private static String cacheName(String routeId) {
+        return "gateway-response-" + routeId;
+    }
+
+    private Mono<Void> fetch(ServerWebExchange exchange, GatewayFilterChain chain, String key, Config config,
+                             RouteCache routeCache, boolean bypass, Timer.Sample sample) {
+        Sinks.Empty<Void> refill = Sinks.empty();
+        Sinks.Empty<Void> inFlightRefill = routeCache.refills().putIfAbsent(key, refill);
+
+        if (inFlightRefill != null && !bypass) {
+            // Stampede guard: another request is already refilling this entry, so wait for it instead of going upstream
+            return inFlightRefill.asMono()
+                    .timeout(config.getRefillTimeout(), Mono.empty())
+                    .then(Mono.defer(() -> {
+                        Entry refilled = routeCache.cache().getIfPresent(key);
+                        // Not cacheable, failed or too slow, so go upstream after all
+                        return refilled != null ? serve(exchange, refilled.response(), sample) : forward(exchange, chain, key, config, routeCache);
+                    }));
+        }
+        if (inFlightRefill != null) {
+            return forward(exchange, chain, key, config, routeCache);
+        }
+
+        return forward(exchange, chain, key, config, routeCache)
+                .doFinally(signal -> {
+                    routeCache.refills().remove(key, refill);
+                    refill.tryEmitEmpty();
+                });
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, String key, Config config, RouteCache routeCache) {
+        exchange.getResponse().getHeaders().set("X-Cache", "MISS");
+        ServerHttpResponse response = CachedResponse.capture(exchange.getResponse(), config.getMaxEntrySize().toBytes(), captured -> {
+            captured.headers().remove("X-Cache");
+            timeToLive(exchange.getRequest().getHeaders(), captured, config.getTimeToLive())
+                    .ifPresent(timeToLive -> routeCache.cache().put(key, new Entry(captured, timeToLive)));
+        });
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, CachedResponse cached, Timer.Sample sample) {
+        ServerHttpResponse response = exchange.getResponse();
+        String eTag = cached.headers().getETag();
+
+        // Conditional request for a response the client already has
+        if (eTag != null && exchange.getRequest().getHeaders().getIfNoneMatch().contains(eTag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().setETag(eTag);
+            return response.setComplete().doFinally(signal -> recordHit(exchange, sample));
+        }
+
+        response.getHeaders().set("X-Cache", "HIT");
+        return cached.writeTo(response).doFinally(signal -> recordHit(exchange, sample));
+    }
+
+    private void recordHit(ServerWebExchange exchange, Timer.Sample sample) {
+        sample.stop(Timer.builder(REQUESTS_METRIC)
+                .tags(tagsProvider.apply(exchange).and("outcome", CACHE_HIT_OUTCOME))
+                .register(meterRegistry));
+    }
+
+    /**
+     * Returns how long the response may be cached for, or empty if it must not be cached.
+     */
+    private static Optional<Duration> timeToLive(HttpHeaders requestHeaders, CachedResponse response, Duration defaultTimeToLive) {
+        String responseCacheControl = cacheControl(response.headers());
+        if (response.statusCode().value() != HttpStatus.OK.value()
+                || cacheControl(requestHeaders).contains("no-store")
+                || responseCacheControl.contains("no-store")
+                || responseCacheControl.contains("no-cache")
+                || responseCacheControl.contains("private")
+                || response.headers().containsKey(HttpHeaders.SET_COOKIE)) {
+            return Optional.empty();
+        }
+
+        Matcher maxAge = MAX_AGE.matcher(responseCacheControl);
+        Duration timeToLive = defaultTimeToLive;
+        if (maxAge.find()) {
+            Duration upstreamMaxAge = Duration.ofSeconds(Long.parseLong(maxAge.group(1)));
+            timeToLive = upstreamMaxAge.compareTo(timeToLive) < 0 ? upstreamMaxAge : timeToLive;
+        }
+        return timeToLive.isZero() ? Optional.empty() : Optional.of(timeToLive);
+    }
+
+    private static String cacheControl(HttpHeaders headers) {
+        return String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)).toLowerCase();
+    }
+
+    private static String cacheKey(ServerHttpRequest request, List<String> keyHeaders) {
+        StringBuilder key = new StringBuilder(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : keyHeaders) {
+            key.append('|').append(header).append('=').append(String.join(",", request.getHeaders().getOrEmpty(header)));
+        }
+        return key.toString();
+    }
+
+    private record Entry(CachedResponse response, Duration timeToLive) {
+    }
+
+    private record RouteCache(Config config, Cache<String, Entry> cache, Map<String, Sinks.Empty<Void>> refills) {
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private Duration timeToLive = Duration.ofMinutes(1);
+        private DataSize maxSize = DataSize.ofMegabytes(10);
+        private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+        private List<String> keyHeaders = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        private Duration refillTimeout = Duration.ofSeconds(5);
+        private String routeId;
+    }
+}
@@ -0,0 +1,138 @@
+package com.microservices.apigateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process token bucket rate limiter for the RequestRateLimiter filter, which does not need Redis, e.g.
+ * spring.cloud.gateway.routes[1].filters[0].args.local-rate-limiter.replenish-rate=10
+ * spring.cloud.gateway.routes[1].filters[0].args.local-rate-limiter.burst-capacity=20
+ *
+ * Each bucket is a single AtomicLong holding the time at which it will be full again (GCRA), updated with CAS, so
+ * admitting a request takes no lock. A bucket left idle until it is full again is evicted, as it holds no information.
+ * Limits are per gateway instance, so the effective limit across the cluster is multiplied by the number of instances.
+ */
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Bucket> buckets;
+
+    @Autowired
+    public LocalRateLimiter(ConfigurationService configurationService, MeterRegistry meterRegistry,
+                            @Value("${gateway.rate-limiter.max-keys:100000}") long maxKeys) {
+        this(configurationService, meterRegistry, maxKeys, System::nanoTime);
+    }
+
+    public LocalRateLimiter(ConfigurationService configurationService, MeterRegistry meterRegistry, long maxKeys,
+                            LongSupplier nanoClock) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        // If a busy bucket is evicted under memory pressure, its key starts again with a full bucket
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new Expiry<String, Bucket>() {
+                    @Override
+                    public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+                        return bucket.idleTimeout();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+                        return bucket.idleTimeout();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+                        return bucket.idleTimeout();
+                    }
+                })
+                .ticker(nanoClock::getAsLong)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "gateway-rate-limiter");
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().get(routeId);
+        if (config == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId);
+        }
+        if (config.getReplenishRate() <= 0 || config.getBurstCapacity() < config.getRequestedTokens()) {
+            throw new IllegalArgumentException("Invalid " + CONFIGURATION_PROPERTY_NAME + " configuration for route " + routeId);
+        }
+
+        long emissionInterval = NANOS_PER_SECOND / config.getReplenishRate();
+        long tolerance = emissionInterval * config.getBurstCapacity();
+        long cost = emissionInterval * config.getRequestedTokens();
+
+        Bucket bucket = buckets.get(routeId + ":" + id, key -> new Bucket(new AtomicLong(Long.MIN_VALUE), tolerance));
+        long now = nanoClock.getAsLong();
+        long fullAt;
+        long newFullAt;
+        boolean allowed;
+        do {
+            fullAt = bucket.fullAt().get();
+            // A bucket that is already full is treated as becoming full now (Long.MIN_VALUE marks a new bucket)
+            long base = fullAt == Long.MIN_VALUE || fullAt - now < 0 ? now : fullAt;
+            newFullAt = base + cost;
+            allowed = newFullAt - now <= tolerance;
+        } while (allowed && !bucket.fullAt().compareAndSet(fullAt, newFullAt));
+
+        long emptyFor = (allowed ? newFullAt : Math.max(fullAt, now)) - now;
+        long remaining = Math.max(0, (tolerance - emptyFor) / emissionInterval);
+
+        meterRegistry.counter("gateway.ratelimiter.requests",
+                "route", routeId, "outcome", allowed ? "admitted" : "throttled").increment();
+
+        return Mono.just(new Response(allowed, config.isIncludeHeaders() ? headers(config, remaining) : Map.of()));
+    }
+
+    private static Map<String, String> headers(Config config, long remaining) {
+        return Map.of(
+                "X-RateLimit-Remaining", Long.toString(remaining),
+                "X-RateLimit-Replenish-Rate", Integer.toString(config.getReplenishRate()),
+                "X-RateLimit-Burst-Capacity", Integer.toString(config.getBurstCapacity()),
+                "X-RateLimit-Requested-Tokens", Integer.toString(config.getRequestedTokens()));
+    }
+
+    /**
+     * @param fullAt      System.nanoTime() at which the bucket will be full again
+     * @param idleTimeout time after which an idle bucket is full again, and can be evicted
+     */
+    private record Bucket(AtomicLong fullAt, long idleTimeout) {
+    }
+
+    @Data
+    public static class Config {
+        // Tokens added to the bucket per second
+        private int replenishRate;
+        // Maximum number of tokens in the bucket, i.e. the largest burst admitted at once
+        private int burstCapacity;
+        // Tokens taken by each request
+        private int requestedTokens = 1;
+        private boolean includeHeaders = true;
+    }
+}
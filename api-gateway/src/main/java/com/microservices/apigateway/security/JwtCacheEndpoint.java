@@ -0,0 +1,29 @@
+package com.microservices.apigateway.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint to evict revoked tokens from the JWT cache:
+ * POST /actuator/jwtcache {"token": "..."} evicts one token, DELETE /actuator/jwtcache evicts all tokens.
+ * Like every actuator endpoint, it is restricted to the gateway.actuator.role realm role (see SecurityConfig).
+ */
+@Component
+@Endpoint(id = "jwtcache")
+@RequiredArgsConstructor
+public class JwtCacheEndpoint {
+    private final CachingReactiveJwtDecoder jwtDecoder;
+
+    @WriteOperation
+    public void revoke(String token) {
+        jwtDecoder.evict(token);
+    }
+
+    @DeleteOperation
+    public void revokeAll() {
+        jwtDecoder.evictAll();
+    }
+}
@@ -0,0 +1,165 @@
+package com.microservices.apigateway.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Source of the identity provider's signing keys (JWKS), which never blocks gateway startup on the identity provider.
+ * On startup, the keys are loaded from a local snapshot (if any), and then fetched from the jwk-set-uri in the background.
+ * The keys are refreshed at a jittered interval (so that gateway instances do not refresh at the same time), and
+ * immediately when a token is signed with an unknown key id, which happens when the identity provider rotates its keys.
+ */
+@Slf4j
+public class RefreshingJwkSource implements Function<SignedJWT, Flux<JWK>> {
+    private static final double JITTER = 0.2;
+
+    private final Supplier<Mono<String>> jwkSetFetcher;
+    private final String jwkSetUri;
+    private final Path snapshotPath;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final LongSupplier nanoClock;
+    private final Scheduler scheduler;
+
+    private volatile JWKSet jwkSet = new JWKSet();
+    private final AtomicLong lastRefreshNanos;
+    private Disposable refreshLoop;
+
+    /**
+     * @param snapshotPath       file to persist the last fetched keys to, or null to not keep a snapshot
+     * @param minRefreshInterval minimum time between refreshes triggered by unknown key ids
+     */
+    public RefreshingJwkSource(WebClient webClient, String jwkSetUri, Path snapshotPath,
+                               Duration refreshInterval, Duration minRefreshInterval) {
+        this(() -> webClient.get().uri(jwkSetUri).retrieve().bodyToMono(String.class), jwkSetUri, snapshotPath,
+                refreshInterval, minRefreshInterval, System::nanoTime, Schedulers.parallel());
+    }
+
+    /**
+     * @param jwkSetFetcher fetches the JWKS document from jwkSetUri
+     * @param scheduler     scheduler of the periodic refreshes
+     */
+    public RefreshingJwkSource(Supplier<Mono<String>> jwkSetFetcher, String jwkSetUri, Path snapshotPath,
+                               Duration refreshInterval, Duration minRefreshInterval,
+                               LongSupplier nanoClock, Scheduler scheduler) {
+        this.jwkSetFetcher = jwkSetFetcher;
+        this.jwkSetUri = jwkSetUri;
+        this.snapshotPath = snapshotPath;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.nanoClock = nanoClock;
+        this.scheduler = scheduler;
+        this.lastRefreshNanos = new AtomicLong(nanoClock.getAsLong() - Long.MAX_VALUE / 2);
+    }
+
+    public void start() {
+        loadSnapshot();
+
+        // Refresh right away and then periodically, without ever waiting for the identity provider
+        refreshLoop = Mono.defer(() -> refresh().onErrorResume(e -> Mono.empty()))
+                .then(Mono.defer(() -> Mono.delay(jitteredRefreshInterval(), scheduler)))
+                .repeat()
+                .subscribe();
+    }
+
+    public void stop() {
+        if (refreshLoop != null) {
+            refreshLoop.dispose();
+        }
+    }
+
+    @Override
+    public Flux<JWK> apply(SignedJWT signedJwt) {
+        JWKMatcher matcher = JWKMatcher.forJWSHeader(signedJwt.getHeader());
+        if (matcher == null) {
+            return Flux.empty();    // Unsupported signing algorithm
+        }
+
+        JWKSelector selector = new JWKSelector(matcher);
+        List<JWK> keys = selector.select(jwkSet);
+        if (!keys.isEmpty()) {
+            return Flux.fromIterable(keys);
+        }
+
+        // Unknown key id, so the keys were probably rotated (or not fetched yet)
+        return refreshOnUnknownKey().flatMapIterable(selector::select);
+    }
+
+    private Mono<JWKSet> refreshOnUnknownKey() {
+        long now = nanoClock.getAsLong();
+        long lastRefresh = lastRefreshNanos.get();
+        // Rate limit, so that tokens with made-up key ids cannot make us flood the identity provider
+        if (now - lastRefresh < minRefreshInterval.toNanos() || !lastRefreshNanos.compareAndSet(lastRefresh, now)) {
+            return Mono.just(jwkSet);
+        }
+        return refresh().onErrorResume(e -> Mono.just(jwkSet));
+    }
+
+    private Mono<JWKSet> refresh() {
+        return Mono.defer(jwkSetFetcher)
+                .<JWKSet>handle((body, sink) -> {
+                    try {
+                        JWKSet refreshed = JWKSet.parse(body);
+                        jwkSet = refreshed;
+                        lastRefreshNanos.set(nanoClock.getAsLong());
+                        log.debug("Refreshed {} signing keys from {}", refreshed.getKeys().size(), jwkSetUri);
+                        saveSnapshot(body);
+                        sink.next(refreshed);
+                    } catch (ParseException e) {
+                        sink.error(new IllegalStateException("Invalid JWKS from " + jwkSetUri, e));
+                    }
+                })
+                .doOnError(e -> log.warn("Failed to refresh signing keys from {}, keeping {} keys: {}",
+                        jwkSetUri, jwkSet.getKeys().size(), e.getMessage()));
+    }
+
+    private Duration jitteredRefreshInterval() {
+        long interval = refreshInterval.toMillis();
+        long jitter = (long) (interval * JITTER);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(interval - jitter, interval + jitter + 1));
+    }
+
+    private void loadSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        try {
+            jwkSet = JWKSet.parse(Files.readString(snapshotPath));
+            log.info("Loaded {} signing keys from snapshot {}", jwkSet.getKeys().size(), snapshotPath);
+        } catch (IOException | ParseException e) {
+            log.warn("Ignoring unreadable signing key snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private void saveSnapshot(String body) {
+        if (snapshotPath == null) {
+            return;
+        }
+        // The JWKS only holds public keys, so the snapshot is not sensitive
+        Mono.fromCallable(() -> Files.writeString(snapshotPath, body))
+                .subscribeOn(Schedulers.boundedElastic())   // Keep file I/O off the event loop
+                .subscribe(path -> { }, e -> log.warn("Failed to save signing key snapshot {}: {}", snapshotPath, e.getMessage()));
+    }
+}
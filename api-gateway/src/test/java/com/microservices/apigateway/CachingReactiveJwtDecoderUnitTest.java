@@ -0,0 +1,95 @@
+package com.microservices.apigateway;
+
+import com.microservices.apigateway.security.CachingReactiveJwtDecoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CachingReactiveJwtDecoderUnitTest {
+    private static final String TOKEN = "header.payload.signature";
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    private Instant expiresAt;
+    private SimpleMeterRegistry meterRegistry;
+    private CachingReactiveJwtDecoder jwtDecoder;
+
+    @BeforeEach
+    void setup() {
+        expiresAt = Instant.now().plusSeconds(60);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtDecoder = new CachingReactiveJwtDecoder(token -> {
+            delegateCalls.incrementAndGet();
+            return Mono.just(jwt(token, expiresAt));
+        }, 100, meterRegistry, nanoTime::get);
+    }
+
+    @Test
+    @DisplayName("A token decoded once is served from the cache")
+    void cacheHitTest() {
+        Jwt first = jwtDecoder.decode(TOKEN).block();
+        Jwt second = jwtDecoder.decode(TOKEN).block();
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, delegateCalls.get());
+        Assertions.assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "jwt-decoder").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("A cached token expires at its exp claim")
+    void expiryTest() {
+        jwtDecoder.decode(TOKEN).block();
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        jwtDecoder.decode(TOKEN).block();
+        Assertions.assertEquals(1, delegateCalls.get());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        jwtDecoder.decode(TOKEN).block();
+        Assertions.assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    @DisplayName("Tokens without exp are not cached")
+    void noExpiryTest() {
+        expiresAt = null;
+
+        jwtDecoder.decode(TOKEN).block();
+        jwtDecoder.decode(TOKEN).block();
+
+        Assertions.assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    @DisplayName("A revoked token is verified by the delegate decoder again")
+    void revokeTest() {
+        jwtDecoder.decode(TOKEN).block();
+        jwtDecoder.decode("other." + TOKEN).block();
+
+        jwtDecoder.evict(TOKEN);
+        jwtDecoder.decode(TOKEN).block();
+        jwtDecoder.decode("other." + TOKEN).block();
+        Assertions.assertEquals(3, delegateCalls.get());
+
+        jwtDecoder.evictAll();
+        jwtDecoder.decode(TOKEN).block();
+        jwtDecoder.decode("other." + TOKEN).block();
+        Assertions.assertEquals(5, delegateCalls.get());
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        Instant issuedAt = Instant.now();
+        return new Jwt(token, issuedAt, expiresAt, Map.of("alg", "RS256"), Map.of("sub", "alice"));
+    }
+}
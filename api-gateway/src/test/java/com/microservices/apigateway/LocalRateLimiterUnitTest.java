@@ -0,0 +1,81 @@
+package com.microservices.apigateway;
+
+import com.microservices.apigateway.ratelimit.LocalRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class LocalRateLimiterUnitTest {
+    private static final String ROUTE_ID = "order-service";
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+    private SimpleMeterRegistry meterRegistry;
+    private LocalRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new LocalRateLimiter(null, meterRegistry, 1000, nanoTime::get);
+
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config();
+        config.setReplenishRate(2);
+        config.setBurstCapacity(4);
+        rateLimiter.getConfig().put(ROUTE_ID, config);
+    }
+
+    @Test
+    @DisplayName("Burst up to the capacity is admitted, and the next request is throttled")
+    void burstTest() {
+        for (int remaining = 3; remaining >= 0; remaining--) {
+            RateLimiter.Response response = rateLimiter.isAllowed(ROUTE_ID, "user:alice").block();
+            Assertions.assertTrue(response.isAllowed());
+            Assertions.assertEquals(Integer.toString(remaining), response.getHeaders().get("X-RateLimit-Remaining"));
+        }
+
+        RateLimiter.Response response = rateLimiter.isAllowed(ROUTE_ID, "user:alice").block();
+        Assertions.assertFalse(response.isAllowed());
+        Assertions.assertEquals("0", response.getHeaders().get("X-RateLimit-Remaining"));
+
+        Assertions.assertEquals(4, meterRegistry.counter("gateway.ratelimiter.requests",
+                "route", ROUTE_ID, "outcome", "admitted").count());
+        Assertions.assertEquals(1, meterRegistry.counter("gateway.ratelimiter.requests",
+                "route", ROUTE_ID, "outcome", "throttled").count());
+    }
+
+    @Test
+    @DisplayName("Tokens are replenished over time")
+    void replenishTest() {
+        for (int i = 0; i < 4; i++) {
+            rateLimiter.isAllowed(ROUTE_ID, "user:alice").block();
+        }
+        Assertions.assertFalse(rateLimiter.isAllowed(ROUTE_ID, "user:alice").block().isAllowed());
+
+        // 2 tokens per second, so one token is back after 500ms
+        nanoTime.addAndGet(Duration.ofMillis(500).toNanos());
+        Assertions.assertTrue(rateLimiter.isAllowed(ROUTE_ID, "user:alice").block().isAllowed());
+        Assertions.assertFalse(rateLimiter.isAllowed(ROUTE_ID, "user:alice").block().isAllowed());
+    }
+
+    @Test
+    @DisplayName("Each user has their own bucket")
+    void perKeyTest() {
+        for (int i = 0; i < 4; i++) {
+            rateLimiter.isAllowed(ROUTE_ID, "user:alice").block();
+        }
+
+        Assertions.assertFalse(rateLimiter.isAllowed(ROUTE_ID, "user:alice").block().isAllowed());
+        Assertions.assertTrue(rateLimiter.isAllowed(ROUTE_ID, "user:bob").block().isAllowed());
+    }
+
+    @Test
+    @DisplayName("Route without configuration is rejected")
+    void missingConfigTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> rateLimiter.isAllowed("unknown", "user:alice"));
+    }
+}
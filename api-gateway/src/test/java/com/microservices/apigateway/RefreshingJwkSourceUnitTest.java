@@ -0,0 +1,129 @@
+package com.microservices.apigateway;
+
+import com.microservices.apigateway.security.RefreshingJwkSource;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the keys from a stub JWKS fetcher, with the periodic refreshes on a virtual time scheduler.
+ */
+class RefreshingJwkSourceUnitTest {
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(5);
+    private static final Duration MIN_REFRESH_INTERVAL = Duration.ofSeconds(30);
+    // The longest jittered refresh interval (+20%), and shorter than two of the shortest ones (-20%)
+    private static final Duration AFTER_REFRESH_INTERVAL = Duration.ofMinutes(6);
+
+    private static RSAKey oldKey;
+    private static RSAKey rotatedKey;
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger fetches = new AtomicInteger();
+    private Mono<String> jwkSetResponse;
+    private VirtualTimeScheduler scheduler;
+    private RefreshingJwkSource jwkSource;
+
+    @BeforeAll
+    static void generateKeys() throws JOSEException {
+        oldKey = new RSAKeyGenerator(2048).keyID("old").generate();
+        rotatedKey = new RSAKeyGenerator(2048).keyID("rotated").generate();
+    }
+
+    @BeforeEach
+    void setup() {
+        jwkSetResponse = jwkSet(oldKey);
+        scheduler = VirtualTimeScheduler.create();
+        jwkSource = new RefreshingJwkSource(() -> {
+            fetches.incrementAndGet();
+            return jwkSetResponse;
+        }, "http://keycloak/certs", null, REFRESH_INTERVAL, MIN_REFRESH_INTERVAL, nanoTime::get, scheduler);
+        jwkSource.start();
+    }
+
+    @AfterEach
+    void teardown() {
+        jwkSource.stop();
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("Keys are fetched on start, and refreshed ahead of the tokens signed with a new key")
+    void refreshAheadTest() {
+        Assertions.assertEquals(1, fetches.get());
+        Assertions.assertEquals(List.of("old"), keyIds(jwkSource.apply(token("old")).collectList().block()));
+
+        jwkSetResponse = jwkSet(oldKey, rotatedKey);
+        scheduler.advanceTimeBy(AFTER_REFRESH_INTERVAL);
+        Assertions.assertEquals(2, fetches.get());
+
+        Assertions.assertEquals(List.of("rotated"), keyIds(jwkSource.apply(token("rotated")).collectList().block()));
+        Assertions.assertEquals(2, fetches.get());
+    }
+
+    @Test
+    @DisplayName("The last fetched keys are kept when a refresh fails")
+    void failedRefreshTest() {
+        jwkSetResponse = Mono.error(new IllegalStateException("Connection refused"));
+        scheduler.advanceTimeBy(AFTER_REFRESH_INTERVAL);
+        Assertions.assertEquals(2, fetches.get());
+        Assertions.assertEquals(List.of("old"), keyIds(jwkSource.apply(token("old")).collectList().block()));
+
+        // The refresh loop survives the failure
+        jwkSetResponse = jwkSet(rotatedKey);
+        scheduler.advanceTimeBy(AFTER_REFRESH_INTERVAL);
+        Assertions.assertEquals(3, fetches.get());
+        Assertions.assertEquals(List.of("rotated"), keyIds(jwkSource.apply(token("rotated")).collectList().block()));
+    }
+
+    @Test
+    @DisplayName("An unknown key id fetches the keys again, at most once per minimum refresh interval")
+    void unknownKeyIdTest() {
+        jwkSetResponse = jwkSet(oldKey, rotatedKey);
+        nanoTime.addAndGet(MIN_REFRESH_INTERVAL.toNanos());
+
+        Assertions.assertEquals(List.of("rotated"), keyIds(jwkSource.apply(token("rotated")).collectList().block()));
+        Assertions.assertEquals(2, fetches.get());
+
+        // Made-up key ids do not make the gateway flood the identity provider
+        Assertions.assertTrue(jwkSource.apply(token("made-up")).collectList().block().isEmpty());
+        Assertions.assertEquals(2, fetches.get());
+
+        nanoTime.addAndGet(MIN_REFRESH_INTERVAL.toNanos() + TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertTrue(jwkSource.apply(token("made-up")).collectList().block().isEmpty());
+        Assertions.assertEquals(3, fetches.get());
+    }
+
+    private static Mono<String> jwkSet(RSAKey... keys) {
+        return Mono.just(new JWKSet(Arrays.stream(keys).map(RSAKey::toPublicJWK).map(JWK.class::cast).toList()).toString());
+    }
+
+    private static SignedJWT token(String keyId) {
+        return new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(keyId).build(),
+                new JWTClaimsSet.Builder().subject("alice").build());
+    }
+
+    private static List<String> keyIds(List<JWK> keys) {
+        return keys.stream().map(JWK::getKeyID).toList();
+    }
+}
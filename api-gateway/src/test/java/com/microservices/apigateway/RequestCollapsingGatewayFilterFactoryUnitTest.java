@@ -0,0 +1,131 @@
+package com.microservices.apigateway;
+
+import com.microservices.apigateway.filter.RequestCollapsingGatewayFilterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RequestCollapsingGatewayFilterFactoryUnitTest {
+    private static final String ROUTE_ID = "product-service";
+    private static final String BODY = "[{\"id\":\"1\",\"name\":\"iPhone 13\",\"price\":1200}]";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    // Upstream responses are held until released, so that the requests overlap
+    private final Sinks.Empty<Void> release = Sinks.empty();
+    private boolean failFirstCall;
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCollapsingGatewayFilterFactory filterFactory;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        filterFactory = new RequestCollapsingGatewayFilterFactory(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Concurrent identical GETs of callers with the same authorities share one upstream response")
+    void waiterSharingTest() throws Exception {
+        GatewayFilter filter = filterFactory.apply(config(1000));
+        MockServerWebExchange leader = exchange("alice", "ROLE_user", "SCOPE_profile");
+        MockServerWebExchange waiter = exchange("bob", "SCOPE_profile", "ROLE_user");
+        MockServerWebExchange otherAuthorities = exchange("carol", "ROLE_admin", "ROLE_user", "SCOPE_profile");
+
+        CompletableFuture<Void> leaderResult = filter.filter(leader, upstream()).toFuture();
+        CompletableFuture<Void> waiterResult = filter.filter(waiter, upstream()).toFuture();
+        CompletableFuture<Void> otherAuthoritiesResult = filter.filter(otherAuthorities, upstream()).toFuture();
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(leaderResult, waiterResult, otherAuthoritiesResult).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(2, upstreamCalls.get());
+        Assertions.assertEquals(BODY, leader.getResponse().getBodyAsString().block());
+        Assertions.assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+        Assertions.assertEquals(HttpStatus.OK, waiter.getResponse().getStatusCode());
+        Assertions.assertEquals(1, meterRegistry.get("gateway.requests.collapsed").tag("route", ROUTE_ID).counter().count());
+
+        // Nothing is kept once the response is received
+        filter.filter(exchange("alice", "ROLE_user", "SCOPE_profile"), upstream()).block();
+        Assertions.assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("Requests beyond maxWaiters go upstream on their own")
+    void waiterCapTest() throws Exception {
+        GatewayFilter filter = filterFactory.apply(config(1));
+
+        CompletableFuture<Void> leaderResult = filter.filter(exchange("alice", "ROLE_user"), upstream()).toFuture();
+        CompletableFuture<Void> waiterResult = filter.filter(exchange("alice", "ROLE_user"), upstream()).toFuture();
+        CompletableFuture<Void> overflowResult = filter.filter(exchange("alice", "ROLE_user"), upstream()).toFuture();
+        Assertions.assertEquals(2, upstreamCalls.get());
+
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(leaderResult, waiterResult, overflowResult).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, upstreamCalls.get());
+        Assertions.assertEquals(1, meterRegistry.get("gateway.requests.collapsed").tag("route", ROUTE_ID).counter().count());
+    }
+
+    @Test
+    @DisplayName("When the upstream request fails, its waiters go upstream on their own")
+    void upstreamErrorTest() throws Exception {
+        failFirstCall = true;
+        GatewayFilter filter = filterFactory.apply(config(1000));
+        MockServerWebExchange waiter = exchange("alice", "ROLE_user");
+
+        CompletableFuture<Void> leaderResult = filter.filter(exchange("alice", "ROLE_user"), upstream()).toFuture();
+        CompletableFuture<Void> waiterResult = filter.filter(waiter, upstream()).toFuture();
+        release.tryEmitEmpty();
+
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+                () -> leaderResult.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+        waiterResult.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, upstreamCalls.get());
+        Assertions.assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> {
+            int call = upstreamCalls.incrementAndGet();
+            return release.asMono().then(Mono.defer(() -> {
+                if (failFirstCall && call == 1) {
+                    return Mono.error(new IllegalStateException("Connection refused"));
+                }
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.OK);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+            }));
+        };
+    }
+
+    // The token is unique per caller, so that only the authorities can make requests identical
+    private static MockServerWebExchange exchange(String user, String... authorities) {
+        return MockServerWebExchange.builder(MockServerHttpRequest.get("/api/product")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + user))
+                .principal(new TestingAuthenticationToken(user, null, authorities))
+                .build();
+    }
+
+    private static RequestCollapsingGatewayFilterFactory.Config config(int maxWaiters) {
+        RequestCollapsingGatewayFilterFactory.Config config = new RequestCollapsingGatewayFilterFactory.Config();
+        config.setMaxWaiters(maxWaiters);
+        config.setRouteId(ROUTE_ID);
+        return config;
+    }
+}
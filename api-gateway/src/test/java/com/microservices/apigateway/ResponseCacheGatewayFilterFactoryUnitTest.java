@@ -0,0 +1,184 @@
+package com.microservices.apigateway;
+
+import com.microservices.apigateway.filter.ResponseCacheGatewayFilterFactory;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ResponseCacheGatewayFilterFactoryUnitTest {
+    private static final String ROUTE_ID = "product-service";
+    private static final String BODY = "[{\"id\":\"1\",\"name\":\"iPhone 13\"}]";
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final HttpHeaders upstreamHeaders = new HttpHeaders();
+    private String upstreamBody = BODY;
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCacheGatewayFilterFactory filterFactory;
+    private GatewayFilter filter;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Stands in for the gateway's built-in tags providers
+        filterFactory = new ResponseCacheGatewayFilterFactory(meterRegistry,
+                List.of(exchange -> Tags.of("routeId", ROUTE_ID, "outcome", "SUCCESSFUL")), nanoTime::get);
+        filter = filterFactory.apply(config(Duration.ofSeconds(60)));
+    }
+
+    @Test
+    @DisplayName("The second GET is served from the cache")
+    void hitTest() {
+        MockServerWebExchange miss = get(MockServerHttpRequest.get("/api/product"));
+        MockServerWebExchange hit = get(MockServerHttpRequest.get("/api/product"));
+
+        Assertions.assertEquals(1, upstreamCalls.get());
+        Assertions.assertEquals("MISS", miss.getResponse().getHeaders().getFirst("X-Cache"));
+        Assertions.assertEquals("HIT", hit.getResponse().getHeaders().getFirst("X-Cache"));
+        Assertions.assertEquals(BODY, hit.getResponse().getBodyAsString().block());
+
+        // Other queries are other entries
+        get(MockServerHttpRequest.get("/api/product?name=iPhone"));
+        Assertions.assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("Entries expire after the configured TTL, or the upstream max-age if shorter")
+    void timeToLiveTest() {
+        get(MockServerHttpRequest.get("/api/product"));
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        get(MockServerHttpRequest.get("/api/product"));
+        Assertions.assertEquals(1, upstreamCalls.get());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        get(MockServerHttpRequest.get("/api/product"));
+        Assertions.assertEquals(2, upstreamCalls.get());
+
+        upstreamHeaders.setCacheControl("max-age=5");
+        get(MockServerHttpRequest.get("/api/product?name=iPhone"));
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        get(MockServerHttpRequest.get("/api/product?name=iPhone"));
+        Assertions.assertEquals(4, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("Cache-Control: no-cache from the client and no-store from upstream bypass the cache")
+    void cacheControlTest() {
+        get(MockServerHttpRequest.get("/api/product"));
+        MockServerWebExchange bypass = get(MockServerHttpRequest.get("/api/product").header(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        Assertions.assertEquals(2, upstreamCalls.get());
+        Assertions.assertEquals("MISS", bypass.getResponse().getHeaders().getFirst("X-Cache"));
+
+        upstreamHeaders.setCacheControl("no-store");
+        get(MockServerHttpRequest.get("/api/product?name=iPhone"));
+        get(MockServerHttpRequest.get("/api/product?name=iPhone"));
+        Assertions.assertEquals(4, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("A conditional GET matching the cached ETag gets 304 Not Modified")
+    void conditionalRequestTest() {
+        upstreamHeaders.setETag("\"v1\"");
+        get(MockServerHttpRequest.get("/api/product"));
+
+        MockServerWebExchange notModified = get(MockServerHttpRequest.get("/api/product").ifNoneMatch("\"v1\""));
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getResponse().getStatusCode());
+        Assertions.assertEquals("\"v1\"", notModified.getResponse().getHeaders().getETag());
+        Assertions.assertEquals("", notModified.getResponse().getBodyAsString().defaultIfEmpty("").block());
+
+        MockServerWebExchange modified = get(MockServerHttpRequest.get("/api/product").ifNoneMatch("\"v0\""));
+        Assertions.assertEquals(HttpStatus.OK, modified.getResponse().getStatusCode());
+        Assertions.assertEquals(BODY, modified.getResponse().getBodyAsString().block());
+        Assertions.assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("Responses served from the cache are recorded in the gateway requests timer, with outcome=cache-hit")
+    void hitMetricsTest() {
+        upstreamHeaders.setETag("\"v1\"");
+        get(MockServerHttpRequest.get("/api/product"));
+        // The miss is recorded by the gateway's metrics filter, when the request goes upstream
+        Assertions.assertNull(meterRegistry.find("spring.cloud.gateway.requests").timer());
+
+        get(MockServerHttpRequest.get("/api/product"));
+        get(MockServerHttpRequest.get("/api/product").ifNoneMatch("\"v1\""));
+        Assertions.assertEquals(2, meterRegistry.get("spring.cloud.gateway.requests")
+                .tags("routeId", ROUTE_ID, "outcome", "cache-hit").timer().count());
+        Assertions.assertNull(meterRegistry.find("spring.cloud.gateway.requests").tag("outcome", "SUCCESSFUL").timer());
+    }
+
+    @Test
+    @DisplayName("Responses larger than maxEntrySize are passed through without being cached")
+    void maxEntrySizeTest() {
+        upstreamBody = "x".repeat(2048);
+        ResponseCacheGatewayFilterFactory.Config config = config(Duration.ofSeconds(60));
+        config.setMaxEntrySize(DataSize.ofKilobytes(1));
+        filter = filterFactory.apply(config);
+
+        MockServerWebExchange first = get(MockServerHttpRequest.get("/api/product"));
+        get(MockServerHttpRequest.get("/api/product"));
+
+        Assertions.assertEquals(upstreamBody, first.getResponse().getBodyAsString().block());
+        Assertions.assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("The cache survives a route refresh, unless the config changed")
+    void configChangeTest() {
+        get(MockServerHttpRequest.get("/api/product"));
+
+        filter = filterFactory.apply(config(Duration.ofSeconds(60)));
+        get(MockServerHttpRequest.get("/api/product"));
+        Assertions.assertEquals(1, upstreamCalls.get());
+
+        filter = filterFactory.apply(config(Duration.ofSeconds(10)));
+        get(MockServerHttpRequest.get("/api/product"));
+        Assertions.assertEquals(2, upstreamCalls.get());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        get(MockServerHttpRequest.get("/api/product"));
+        Assertions.assertEquals(3, upstreamCalls.get());
+    }
+
+    private MockServerWebExchange get(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, upstream()).block();
+        return exchange;
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().putAll(upstreamHeaders);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(upstreamBody.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    private static ResponseCacheGatewayFilterFactory.Config config(Duration timeToLive) {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setTimeToLive(timeToLive);
+        config.setRouteId(ROUTE_ID);
+        return config;
+    }
+}
@@ -0,0 +1,46 @@
+package com.microservices.eventschema;
+
+import org.apache.avro.Schema;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.reflect.ReflectData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Encodes one event type with its current schema, and decodes it from any of its schema versions.
+ * The event classes are plain Java classes, mapped to their schema by Avro's reflection (field names must match).
+ * Thread-safe, the encoder and decoder keep their buffers per thread.
+ */
+public class EventCodec<T> {
+    private final BinaryMessageEncoder<T> encoder;
+    private final BinaryMessageDecoder<T> decoder;
+
+    EventCodec(List<Schema> versions) {
+        Schema current = versions.get(versions.size() - 1);
+        this.encoder = new BinaryMessageEncoder<>(ReflectData.get(), current);
+        this.decoder = new BinaryMessageDecoder<>(ReflectData.get(), current);
+        versions.forEach(decoder::addSchema);
+    }
+
+    public byte[] encode(T event) {
+        try {
+            ByteBuffer buffer = encoder.encode(event);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the event, resolving the schema it was written with to the current one.
+     */
+    public T decode(byte[] message) throws IOException {
+        return decoder.decode(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.microservices.eventschema;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Kafka deserializer of the events written by EventSerializer, with any version of their schema.
+ * Throws a SerializationException for an unknown schema, e.g. for ErrorHandlingDeserializer to handle.
+ */
+public class EventDeserializer implements Deserializer<Object> {
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return EventSchemas.codec(EventSchemas.typeOf(data)).decode(data);
+        } catch (IOException | AvroRuntimeException | IllegalArgumentException e) {
+            throw new SerializationException("Cannot deserialize event from " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.microservices.eventschema;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.util.OptionalLong;
+
+/**
+ * Kafka headers set by the producers of the events.
+ */
+public final class EventHeaders {
+    /**
+     * When the producer sent the event (epoch millis, 8 bytes big-endian). Unlike the record timestamp, it is kept
+     * when the event is forwarded to another topic, e.g. a retry topic, so the consumers can measure the end-to-end delay.
+     */
+    public static final String SENT_AT = "event-sent-at";
+
+    private EventHeaders() {
+    }
+
+    public static void addSentAt(Headers headers, long epochMillis) {
+        headers.add(SENT_AT, ByteBuffer.allocate(Long.BYTES).putLong(epochMillis).array());
+    }
+
+    public static OptionalLong sentAt(Headers headers) {
+        Header header = headers.lastHeader(SENT_AT);
+        if (header == null || header.value().length != Long.BYTES) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(ByteBuffer.wrap(header.value()).getLong());
+    }
+}
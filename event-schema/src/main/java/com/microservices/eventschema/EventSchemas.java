@@ -0,0 +1,94 @@
+package com.microservices.eventschema;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for a schema registry: every version of each event's Avro schema is embedded in this module, and
+ * events are written with the Avro single object encoding, i.e. prefixed by the fingerprint of their schema
+ * (2 marker bytes + 8 bytes), from which the reader looks up the writer's schema and the event type.
+ *
+ * Evolution rules, so that every service can read the events written with any version:
+ * - Never edit a released schema file, add a new version (e.g. OrderPlacedEvent-v2.avsc) and list it below
+ * - Only add fields with a default value, and only remove fields which have a default value
+ * - Never rename a field without an alias, or change its type (except for Avro's promotions, e.g. int to long)
+ * Consumers must be deployed with a new version before the producers start writing it.
+ * EventSchemasUnitTest checks that the current version of each event can read all the previous ones.
+ */
+public final class EventSchemas {
+    private static final byte[] MARKER = {(byte) 0xC3, (byte) 0x01};
+    private static final int HEADER_LENGTH = MARKER.length + Long.BYTES;
+
+    // Every version of each event's schema, oldest first: the last one is written, all of them can be read
+    private static final Map<Class<?>, List<String>> VERSIONS = Map.of(
+            OrderPlacedEvent.class, List.of("OrderPlacedEvent-v1.avsc"),
+            OrderRequestedEvent.class, List.of("OrderRequestedEvent-v1.avsc"),
+            OrderStatusChangedEvent.class, List.of("OrderStatusChangedEvent-v1.avsc"));
+
+    private static final Map<Class<?>, List<Schema>> SCHEMAS = new HashMap<>();
+    private static final Map<Class<?>, EventCodec<?>> CODECS = new HashMap<>();
+    private static final Map<Long, Class<?>> TYPES_BY_FINGERPRINT = new HashMap<>();
+
+    static {
+        VERSIONS.forEach((type, files) -> {
+            List<Schema> schemas = files.stream().map(EventSchemas::load).toList();
+            SCHEMAS.put(type, schemas);
+            CODECS.put(type, new EventCodec<>(schemas));
+            schemas.forEach(schema -> TYPES_BY_FINGERPRINT.put(SchemaNormalization.parsingFingerprint64(schema), type));
+        });
+    }
+
+    private EventSchemas() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> EventCodec<T> codec(Class<T> type) {
+        EventCodec<T> codec = (EventCodec<T>) CODECS.get(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("No schema for event " + type.getName());
+        }
+        return codec;
+    }
+
+    /**
+     * All versions of the event's schema, oldest first.
+     */
+    public static List<Schema> versions(Class<?> type) {
+        return SCHEMAS.getOrDefault(type, List.of());
+    }
+
+    /**
+     * Type of the event written to the message, from the fingerprint in its header.
+     */
+    public static Class<?> typeOf(byte[] message) {
+        if (message.length < HEADER_LENGTH || message[0] != MARKER[0] || message[1] != MARKER[1]) {
+            throw new IllegalArgumentException("Not an Avro single object encoded event");
+        }
+        long fingerprint = ByteBuffer.wrap(message, MARKER.length, Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        Class<?> type = TYPES_BY_FINGERPRINT.get(fingerprint);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown schema fingerprint " + Long.toHexString(fingerprint));
+        }
+        return type;
+    }
+
+    private static Schema load(String file) {
+        try (InputStream inputStream = EventSchemas.class.getResourceAsStream("/schemas/" + file)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Missing schema " + file);
+            }
+            return new Schema.Parser().parse(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read schema " + file, e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.microservices.eventschema;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer of the events, in their compact Avro encoding (see EventSchemas).
+ * Unlike spring-kafka's JsonSerializer, no type header is needed: the schema fingerprint identifies the event type.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        return EventSchemas.codec((Class<Object>) data.getClass()).encode(data);
+    }
+}
@@ -1,9 +1,12 @@
-package com.microservices.notificationservice.event;
+package com.microservices.eventschema;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Schema: schemas/OrderPlacedEvent-v*.avsc (see EventSchemas for the evolution rules).
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
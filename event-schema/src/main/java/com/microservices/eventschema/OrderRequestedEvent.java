@@ -0,0 +1,16 @@
+package com.microservices.eventschema;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Schema: schemas/OrderRequestedEvent-v*.avsc (see EventSchemas for the evolution rules).
+ * Only the order number: the order itself was saved before the event is published.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderRequestedEvent {
+    private String orderNumber;
+}
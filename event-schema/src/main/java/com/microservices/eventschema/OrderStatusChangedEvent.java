@@ -0,0 +1,17 @@
+package com.microservices.eventschema;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Schema: schemas/OrderStatusChangedEvent-v*.avsc (see EventSchemas for the evolution rules).
+ * The status is the name of order-service's OrderStatus, kept as a string so that new statuses don't break readers.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusChangedEvent {
+    private String orderNumber;
+    private String status;
+}
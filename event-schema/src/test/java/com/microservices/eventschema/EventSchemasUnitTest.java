@@ -0,0 +1,49 @@
+package com.microservices.eventschema;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class EventSchemasUnitTest {
+    private final EventSerializer serializer = new EventSerializer();
+    private final EventDeserializer deserializer = new EventDeserializer();
+
+    @Test
+    @DisplayName("Events are deserialized to their type, from the schema fingerprint")
+    void roundTripTest() {
+        OrderPlacedEvent event = new OrderPlacedEvent("4f1c6a0e-5b8e-4a43-9d3e-3c1f0b2d7e91");
+
+        byte[] bytes = serializer.serialize("notificationTopic", event);
+
+        Assertions.assertEquals(OrderPlacedEvent.class, EventSchemas.typeOf(bytes));
+        Assertions.assertEquals(event, deserializer.deserialize("notificationTopic", bytes));
+    }
+
+    @Test
+    @DisplayName("The current schema of each event can read all its previous versions")
+    void compatibilityTest() {
+        for (Class<?> type : List.of(OrderPlacedEvent.class, OrderRequestedEvent.class, OrderStatusChangedEvent.class)) {
+            List<Schema> versions = EventSchemas.versions(type);
+            Schema current = versions.get(versions.size() - 1);
+
+            for (Schema version : versions) {
+                Assertions.assertEquals(SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE,
+                        SchemaCompatibility.checkReaderWriterCompatibility(current, version).getType(),
+                        () -> "Cannot read " + version);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Messages which are not events (e.g. JSON) are rejected")
+    void unknownSchemaTest() {
+        byte[] json = "{\"orderNumber\":\"1\"}".getBytes();
+
+        Assertions.assertThrows(SerializationException.class, () -> deserializer.deserialize("notificationTopic", json));
+    }
+}
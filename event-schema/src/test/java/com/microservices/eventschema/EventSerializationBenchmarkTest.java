@@ -0,0 +1,100 @@
+package com.microservices.eventschema;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares the bytes per event (value and headers) and the serialization cost of the Avro encoding against the
+ * JsonSerializer / JsonDeserializer with type mapping, as they were configured in order-service and notification-service.
+ * Only the sizes are asserted, the timings are reported, run with ./gradlew :event-schema:benchmark.
+ */
+@Tag("benchmark")
+class EventSerializationBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(EventSerializationBenchmarkTest.class);
+    private static final int EVENTS = 200_000;
+    private static final String TOPIC = "notificationTopic";
+    private static final Map<String, String> TYPE_MAPPING = Map.of(
+            "spring.json.type.mapping", "event:com.microservices.eventschema.OrderPlacedEvent",
+            "spring.json.trusted.packages", "com.microservices.eventschema");
+
+    private interface Codec {
+        byte[] serialize(Headers headers, OrderPlacedEvent event);
+
+        Object deserialize(Headers headers, byte[] bytes);
+    }
+
+    @Test
+    @DisplayName("Benchmark: Avro events are smaller than JSON, and their (de)serialization time")
+    void serializationBenchmarkTest() {
+        EventSerializer eventSerializer = new EventSerializer();
+        EventDeserializer eventDeserializer = new EventDeserializer();
+        Codec avro = new Codec() {
+            public byte[] serialize(Headers headers, OrderPlacedEvent event) {
+                return eventSerializer.serialize(TOPIC, headers, event);
+            }
+
+            public Object deserialize(Headers headers, byte[] bytes) {
+                return eventDeserializer.deserialize(TOPIC, headers, bytes);
+            }
+        };
+
+        JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.configure(TYPE_MAPPING, false);
+        JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.configure(TYPE_MAPPING, false);
+        Codec json = new Codec() {
+            public byte[] serialize(Headers headers, OrderPlacedEvent event) {
+                return jsonSerializer.serialize(TOPIC, headers, event);
+            }
+
+            public Object deserialize(Headers headers, byte[] bytes) {
+                return jsonDeserializer.deserialize(TOPIC, headers, bytes);
+            }
+        };
+
+        OrderPlacedEvent[] events = new OrderPlacedEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = new OrderPlacedEvent(UUID.randomUUID().toString());
+        }
+        // Warm up the JIT, then measure
+        measure(json, events);
+        measure(avro, events);
+        double[] jsonResult = measure(json, events);
+        double[] avroResult = measure(avro, events);
+
+        log.info("JSON: {} bytes/event, {} ns/event", jsonResult[0], Math.round(jsonResult[1]));
+        log.info("Avro: {} bytes/event, {} ns/event", avroResult[0], Math.round(avroResult[1]));
+        Assertions.assertTrue(avroResult[0] < jsonResult[0]);
+    }
+
+    /**
+     * Returns the bytes per event (value and headers), and the nanoseconds to serialize and deserialize an event.
+     */
+    private static double[] measure(Codec codec, OrderPlacedEvent[] events) {
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (OrderPlacedEvent event : events) {
+            Headers headers = new RecordHeaders();
+            byte[] value = codec.serialize(headers, event);
+            for (Header header : headers) {
+                bytes += header.key().length() + header.value().length;
+            }
+            bytes += value.length;
+            Assertions.assertEquals(event, codec.deserialize(headers, value));
+        }
+        long elapsed = System.nanoTime() - start;
+        return new double[]{(double) bytes / events.length, (double) elapsed / events.length};
+    }
+}
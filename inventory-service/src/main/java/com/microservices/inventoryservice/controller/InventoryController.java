@@ -5,6 +5,8 @@ import com.microservices.inventoryservice.dto.InventoryResponse;
 import com.microservices.inventoryservice.service.InventoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,6 +17,7 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class InventoryController {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     private final InventoryService inventoryService;
 //    private final Tracer tracer;
@@ -42,11 +45,17 @@ public class InventoryController {
     }
 
 
+    // With an Idempotency-Key header (the order number), the decrement is only applied once, however often it is sent
     @PostMapping("/decrement")
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public void decrementQuantity(@RequestBody List<InventoryRequest> inventoryRequest) {
+    public void decrementQuantity(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                  @RequestBody List<InventoryRequest> inventoryRequest) {
         log.info("Received inventory decrement request for skuCode: {}", inventoryRequest.stream().map(InventoryRequest::getSkuCode).toArray());
-        inventoryService.decrementQuantity(inventoryRequest);
+        if (idempotencyKey == null) {
+            inventoryService.decrementQuantity(inventoryRequest);
+        } else {
+            inventoryService.decrementQuantity(idempotencyKey, inventoryRequest);
+        }
 
 //        // Distributed Tracing Micrometer Tracing and Zipkin Brave - Approach #1
 //        Span childSpan = tracer.spanBuilder().setParent(
@@ -61,4 +70,20 @@ public class InventoryController {
 //            childSpan.end(); // End the child span
 //        }
     }
+
+    // Gives back the quantities of the decrement sent with the same Idempotency-Key, e.g. once its order is rejected
+    @PostMapping("/release")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void releaseQuantity(@RequestHeader(IDEMPOTENCY_KEY) String idempotencyKey,
+                                @RequestBody List<InventoryRequest> inventoryRequest) {
+        log.info("Received inventory release request for {}", idempotencyKey);
+        inventoryService.releaseQuantity(idempotencyKey, inventoryRequest);
+    }
+
+    // A decrement or release with the same Idempotency-Key was applied concurrently, the client may send it again
+    @ExceptionHandler({DataIntegrityViolationException.class, OptimisticLockingFailureException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void concurrentRequest(RuntimeException e) {
+        log.info("Concurrent inventory request: {}", e.getMessage());
+    }
 }
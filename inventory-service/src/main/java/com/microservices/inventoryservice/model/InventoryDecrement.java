@@ -0,0 +1,29 @@
+package com.microservices.inventoryservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Record of a decrement applied with an idempotency key (the order number), so that the same decrement sent again
+ * (e.g. retried after a timeout) is only applied once, and is given back at most once.
+ */
+@Entity
+@Table(name = "t_inventory_decrements")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryDecrement {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    @Column(unique = true)  // Concurrent decrements with the same key fail, instead of both being applied
+    private String idempotencyKey;
+    @Enumerated(EnumType.STRING)
+    private InventoryDecrementStatus status;
+    @Version                // Concurrent releases with the same key fail, instead of both being applied
+    private Long version;
+}
@@ -0,0 +1,10 @@
+package com.microservices.inventoryservice.model;
+
+/**
+ * A decrement is DECREMENTED once applied, and RELEASED once its quantities are given back (e.g. the order was
+ * rejected). A decrement released before it arrived is only recorded as RELEASED, so that it is not applied late.
+ */
+public enum InventoryDecrementStatus {
+    DECREMENTED,
+    RELEASED
+}
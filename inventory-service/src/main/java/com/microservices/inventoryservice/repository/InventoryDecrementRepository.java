@@ -0,0 +1,10 @@
+package com.microservices.inventoryservice.repository;
+
+import com.microservices.inventoryservice.model.InventoryDecrement;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface InventoryDecrementRepository extends JpaRepository<InventoryDecrement, Long> {
+    Optional<InventoryDecrement> findByIdempotencyKey(String idempotencyKey);
+}
@@ -17,5 +17,10 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("UPDATE Inventory i SET i.quantity = i.quantity - :#{#inventoryRequest.quantity} WHERE i.skuCode = :#{#inventoryRequest.skuCode}")
     void decrementQuantity(InventoryRequest inventoryRequest);
 
+    @Transactional
+    @Modifying
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity + :#{#inventoryRequest.quantity} WHERE i.skuCode = :#{#inventoryRequest.skuCode}")
+    void incrementQuantity(InventoryRequest inventoryRequest);
+
     Inventory findBySkuCode(String skuCode);
 }
@@ -2,19 +2,26 @@ package com.microservices.inventoryservice.service;
 
 import com.microservices.inventoryservice.dto.InventoryRequest;
 import com.microservices.inventoryservice.dto.InventoryResponse;
+import com.microservices.inventoryservice.model.InventoryDecrement;
+import com.microservices.inventoryservice.model.InventoryDecrementStatus;
+import com.microservices.inventoryservice.repository.InventoryDecrementRepository;
 import com.microservices.inventoryservice.repository.InventoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InventoryService {
     private final InventoryRepository inventoryRepository;
+    private final InventoryDecrementRepository inventoryDecrementRepository;
 
     @Transactional(readOnly = true) // Indicate that this method is read-only (cannot modify database)
 //    @SneakyThrows // Suppresses the need to catch or throw the exception (do not use this in production, as it hides the exception - used for Thread.sleep's java.lang.InterruptedException exception)
@@ -36,4 +43,49 @@ public class InventoryService {
     public void decrementQuantity(List<InventoryRequest> inventoryRequests) {
         inventoryRequests.forEach(inventoryRepository::decrementQuantity);
     }
+
+    /**
+     * Decrements the quantities once per idempotency key (the order number): the same decrement sent again, e.g.
+     * retried after a timeout, or after it was released, is skipped.
+     * @throws DataIntegrityViolationException if a decrement with the same key is applied concurrently
+     */
+    @Transactional
+    public void decrementQuantity(String idempotencyKey, List<InventoryRequest> inventoryRequests) {
+        if (inventoryDecrementRepository.findByIdempotencyKey(idempotencyKey).isPresent()) {
+            log.info("Inventory already decremented for {}, skipping", idempotencyKey);
+            return;
+        }
+        // Flushed first, so that a concurrent decrement with the same key fails on the unique key before decrementing
+        inventoryDecrementRepository.saveAndFlush(InventoryDecrement.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(InventoryDecrementStatus.DECREMENTED)
+                .build());
+        decrementQuantity(inventoryRequests);
+    }
+
+    /**
+     * Gives back the quantities decremented with the idempotency key, at most once. If nothing was decremented with
+     * the key, the key is recorded as released, so that the decrement is skipped if it arrives late.
+     * @throws DataIntegrityViolationException if a decrement with the same key is applied concurrently
+     * @throws OptimisticLockingFailureException if the decrement is released concurrently
+     */
+    @Transactional
+    public void releaseQuantity(String idempotencyKey, List<InventoryRequest> inventoryRequests) {
+        Optional<InventoryDecrement> decrement = inventoryDecrementRepository.findByIdempotencyKey(idempotencyKey);
+        if (decrement.isEmpty()) {
+            log.info("Nothing decremented for {}, recording the release", idempotencyKey);
+            inventoryDecrementRepository.saveAndFlush(InventoryDecrement.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .status(InventoryDecrementStatus.RELEASED)
+                    .build());
+            return;
+        }
+        if (decrement.get().getStatus() == InventoryDecrementStatus.RELEASED) {
+            log.info("Inventory already released for {}, skipping", idempotencyKey);
+            return;
+        }
+        decrement.get().setStatus(InventoryDecrementStatus.RELEASED);
+        inventoryDecrementRepository.saveAndFlush(decrement.get());
+        inventoryRequests.forEach(inventoryRepository::incrementQuantity);
+    }
 }
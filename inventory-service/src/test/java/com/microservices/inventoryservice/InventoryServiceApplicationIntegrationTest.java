@@ -24,6 +24,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import java.util.HashMap;
 import java.util.List;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)    // Automatically included by @SpringBootTest
@@ -80,6 +81,17 @@ public class InventoryServiceApplicationIntegrationTest {
         Assertions.assertEquals("[{\"skuCode\":\"iphone_13\",\"inStock\":true}]", returnValue);
     }
 
+    @Test
+    @DisplayName("Returns inventory in the binary Smile format when requested")
+    public void isInStockSmileTest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/inventory")
+                        .accept("application/x-jackson-smile")
+                        .queryParam("skuCode", skuCode))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"));
+    }
+
     @Test
     @DisplayName("Product quantity is decremented successfully")
     public void decrementQuantityTest() throws Exception {
@@ -3,6 +3,9 @@ package com.microservices.inventoryservice;
 import com.microservices.inventoryservice.dto.InventoryRequest;
 import com.microservices.inventoryservice.dto.InventoryResponse;
 import com.microservices.inventoryservice.model.Inventory;
+import com.microservices.inventoryservice.model.InventoryDecrement;
+import com.microservices.inventoryservice.model.InventoryDecrementStatus;
+import com.microservices.inventoryservice.repository.InventoryDecrementRepository;
 import com.microservices.inventoryservice.repository.InventoryRepository;
 import com.microservices.inventoryservice.service.InventoryService;
 import org.junit.jupiter.api.Assertions;
@@ -16,6 +19,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.Mockito.*;
 
@@ -23,6 +27,8 @@ import static org.mockito.Mockito.*;
 class InventoryServiceUnitTest {
     @Mock
     private InventoryRepository inventoryRepository;
+    @Mock
+    private InventoryDecrementRepository inventoryDecrementRepository;
     @InjectMocks
     private InventoryService inventoryService;
 
@@ -90,4 +96,54 @@ class InventoryServiceUnitTest {
         verify(inventoryRepository, times(inventoryRequests.size())).decrementQuantity(any(InventoryRequest.class));
         verifyNoMoreInteractions(inventoryRepository);
     }
+
+    @Test
+    @DisplayName("Decrement with an idempotency key is only applied once")
+    void idempotentDecrementQuantityTest() {
+        List<InventoryRequest> inventoryRequests = List.of(InventoryRequest.builder().skuCode("iphone_13").quantity(2).build());
+        when(inventoryDecrementRepository.findByIdempotencyKey("order-1")).thenReturn(Optional.empty());
+
+        inventoryService.decrementQuantity("order-1", inventoryRequests);
+
+        verify(inventoryDecrementRepository, times(1)).saveAndFlush(argThat(decrement ->
+                "order-1".equals(decrement.getIdempotencyKey()) && decrement.getStatus() == InventoryDecrementStatus.DECREMENTED));
+        verify(inventoryRepository, times(1)).decrementQuantity(inventoryRequests.get(0));
+
+        // Sent again, e.g. after a timeout
+        when(inventoryDecrementRepository.findByIdempotencyKey("order-1")).thenReturn(Optional.of(decrement("order-1", InventoryDecrementStatus.DECREMENTED)));
+        inventoryService.decrementQuantity("order-1", inventoryRequests);
+
+        verify(inventoryRepository, times(1)).decrementQuantity(any(InventoryRequest.class));
+        verifyNoMoreInteractions(inventoryRepository);
+    }
+
+    @Test
+    @DisplayName("Release gives back a decrement once, and skips the decrement arriving after it")
+    void releaseQuantityTest() {
+        List<InventoryRequest> inventoryRequests = List.of(InventoryRequest.builder().skuCode("iphone_13").quantity(2).build());
+        InventoryDecrement decrement = decrement("order-1", InventoryDecrementStatus.DECREMENTED);
+        when(inventoryDecrementRepository.findByIdempotencyKey("order-1")).thenReturn(Optional.of(decrement));
+
+        inventoryService.releaseQuantity("order-1", inventoryRequests);
+        inventoryService.releaseQuantity("order-1", inventoryRequests);
+
+        Assertions.assertEquals(InventoryDecrementStatus.RELEASED, decrement.getStatus());
+        verify(inventoryRepository, times(1)).incrementQuantity(inventoryRequests.get(0));
+
+        // Released before the decrement arrived
+        when(inventoryDecrementRepository.findByIdempotencyKey("order-2")).thenReturn(Optional.empty());
+        inventoryService.releaseQuantity("order-2", inventoryRequests);
+        verify(inventoryDecrementRepository, times(1)).saveAndFlush(argThat(released ->
+                "order-2".equals(released.getIdempotencyKey()) && released.getStatus() == InventoryDecrementStatus.RELEASED));
+
+        when(inventoryDecrementRepository.findByIdempotencyKey("order-2")).thenReturn(Optional.of(decrement("order-2", InventoryDecrementStatus.RELEASED)));
+        inventoryService.decrementQuantity("order-2", inventoryRequests);
+
+        verify(inventoryRepository, never()).decrementQuantity(any(InventoryRequest.class));
+        verifyNoMoreInteractions(inventoryRepository);
+    }
+
+    private static InventoryDecrement decrement(String idempotencyKey, InventoryDecrementStatus status) {
+        return InventoryDecrement.builder().idempotencyKey(idempotencyKey).status(status).version(0L).build();
+    }
 }
@@ -0,0 +1,190 @@
+package com.microservices.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Load balancer which picks two random instances and sends the request to the less loaded one ("power of two choices").
+ * The load of an instance is the peak EWMA of its response time multiplied by its in-flight requests (as in Finagle).
+ * Unlike round robin, a slow instance gets less traffic as soon as its response time goes up, and gets traffic back
+ * as its EWMA decays.
+ * The response times and in-flight requests are observed through the LoadBalancerLifecycle callbacks.
+ */
+@Slf4j
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+    // Cost of an instance with in-flight requests but no response time yet, so that it is not flooded before it answers
+    private static final double PENALTY = Long.MAX_VALUE >> 16;
+    // Failures count as at least this response time, so that an instance failing fast does not attract the traffic
+    private static final long FAILURE_RESPONSE_TIME = TimeUnit.SECONDS.toNanos(1);
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final MeterRegistry meterRegistry;
+    private final double decayTime;
+    private final LongSupplier nanoClock;
+    private final Map<String, InstanceStats> instanceStats = new ConcurrentHashMap<>();
+
+    public PeakEwmaLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                MeterRegistry meterRegistry, Duration decayTime) {
+        this(serviceId, serviceInstanceListSupplierProvider, meterRegistry, decayTime, System::nanoTime);
+    }
+
+    public PeakEwmaLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                MeterRegistry meterRegistry, Duration decayTime, LongSupplier nanoClock) {
+        this.serviceId = serviceId;
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.meterRegistry = meterRegistry;
+        this.decayTime = decayTime.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances);
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;   // Two distinct instances
+        }
+
+        long now = nanoClock.getAsLong();
+        ServiceInstance firstInstance = instances.get(first);
+        ServiceInstance secondInstance = instances.get(second);
+        return new DefaultResponse(statsOf(firstInstance).cost(now) <= statsOf(secondInstance).cost(now)
+                ? firstInstance : secondInstance);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (isEventStream(request)) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(nanoClock.getAsLong());
+        }
+        if (lbResponse.hasServer()) {
+            statsOf(lbResponse.getServer()).inFlight.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null || !lbResponse.hasServer()) {
+            return;     // No instance was called
+        }
+        if (isEventStream(completionContext.getLoadBalancerRequest())) {
+            return;
+        }
+
+        InstanceStats stats = statsOf(lbResponse.getServer());
+        stats.inFlight.decrementAndGet();
+        if (completionContext.getLoadBalancerRequest().getContext() instanceof TimedRequestContext context) {
+            long now = nanoClock.getAsLong();
+            long responseTime = now - context.getRequestStartTime();
+            if (completionContext.status() == CompletionContext.Status.FAILED) {
+                responseTime = Math.max(responseTime, FAILURE_RESPONSE_TIME);
+            }
+            stats.observe(responseTime, now);
+        }
+    }
+
+    // Server-sent event streams (e.g. order-service's order status) stay open for minutes, and would be taken for slow
+    // in-flight requests, steering the traffic away from the instances serving them
+    private static boolean isEventStream(Request<?> request) {
+        return request != null
+                && request.getContext() instanceof RequestDataContext context
+                && context.getClientRequest() != null
+                && context.getClientRequest().getHeaders().getOrEmpty(HttpHeaders.ACCEPT).stream()
+                        .anyMatch(accept -> accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE));
+    }
+
+    private InstanceStats statsOf(ServiceInstance instance) {
+        return instanceStats.computeIfAbsent(instance.getHost() + ":" + instance.getPort(), this::newInstanceStats);
+    }
+
+    private InstanceStats newInstanceStats(String instance) {
+        InstanceStats stats = new InstanceStats();
+        Tags tags = Tags.of("service", serviceId, "instance", instance);
+        Gauge.builder("loadbalancer.instance.response.time.ewma", stats, s -> s.ewma / TimeUnit.SECONDS.toNanos(1))
+                .tags(tags)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("loadbalancer.instance.requests.inflight", stats.inFlight, AtomicInteger::get)
+                .tags(tags)
+                .register(meterRegistry);
+        return stats;
+    }
+
+    private class InstanceStats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double ewma;
+        private long lastObservedAt;
+
+        synchronized double observe(double responseTime, long now) {
+            double weight = Math.exp(-Math.max(0, now - lastObservedAt) / decayTime);
+            // Peak sensitive: a higher response time is taken as is, while a lower one is only averaged in
+            ewma = responseTime > ewma ? responseTime : ewma * weight + responseTime * (1 - weight);
+            lastObservedAt = now;
+            return ewma;
+        }
+
+        double cost(long now) {
+            double responseTime = observe(0, now);  // Decays towards 0 while the instance is not answering any request
+            int pending = inFlight.get();
+            return responseTime == 0 && pending > 0 ? PENALTY + pending : responseTime * (pending + 1);
+        }
+    }
+}
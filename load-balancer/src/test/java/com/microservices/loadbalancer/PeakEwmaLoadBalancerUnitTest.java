@@ -0,0 +1,175 @@
+package com.microservices.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates inventory-service with 3 instances, one of which is 10 times slower than the others, and compares the
+ * response times with PeakEwmaLoadBalancer against the default RoundRobinLoadBalancer.
+ */
+class PeakEwmaLoadBalancerUnitTest {
+    private static final String SERVICE_ID = "inventory-service";
+    private static final int REQUESTS = 5000;
+    private static final long ARRIVAL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long HEALTHY_RESPONSE_TIME = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long DEGRADED_RESPONSE_TIME = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ServiceInstance healthy1 = new DefaultServiceInstance("inventory-1", SERVICE_ID, "inventory-1", 8080, false);
+    private final ServiceInstance healthy2 = new DefaultServiceInstance("inventory-2", SERVICE_ID, "inventory-2", 8080, false);
+    private final ServiceInstance degraded = new DefaultServiceInstance("inventory-3", SERVICE_ID, "inventory-3", 8080, false);
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private record Completion(long at, CompletionContext<Object, ServiceInstance, Object> context) {
+    }
+
+    private record SimulationResult(Map<ServiceInstance, Integer> requestsPerInstance, long p99ResponseTime) {
+    }
+
+    @Test
+    @DisplayName("Simulation: the degraded instance gets few requests, and p99 is lower than with round robin")
+    void degradedInstanceSimulationTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PeakEwmaLoadBalancer peakEwmaLoadBalancer = new PeakEwmaLoadBalancer(SERVICE_ID,
+                ServiceInstanceListSuppliers.toProvider(SERVICE_ID, healthy1, healthy2, degraded),
+                meterRegistry, Duration.ofSeconds(10), nanoTime::get);
+        RoundRobinLoadBalancer roundRobinLoadBalancer = new RoundRobinLoadBalancer(
+                ServiceInstanceListSuppliers.toProvider(SERVICE_ID, healthy1, healthy2, degraded), SERVICE_ID);
+
+        SimulationResult peakEwma = simulate(peakEwmaLoadBalancer, peakEwmaLoadBalancer);
+        SimulationResult roundRobin = simulate(roundRobinLoadBalancer, null);
+
+        Assertions.assertTrue(peakEwma.requestsPerInstance().getOrDefault(degraded, 0) < REQUESTS / 20);
+        Assertions.assertEquals(DEGRADED_RESPONSE_TIME, roundRobin.p99ResponseTime());
+        Assertions.assertEquals(HEALTHY_RESPONSE_TIME, peakEwma.p99ResponseTime());
+
+        // Per-instance metrics
+        Assertions.assertTrue(meterRegistry.get("loadbalancer.instance.response.time.ewma").tag("instance", "inventory-3:8080").gauge().value()
+                > meterRegistry.get("loadbalancer.instance.response.time.ewma").tag("instance", "inventory-1:8080").gauge().value());
+        Assertions.assertEquals(0, meterRegistry.get("loadbalancer.instance.requests.inflight")
+                .tag("instance", "inventory-1:8080").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Failed requests count as slow responses")
+    void failedRequestTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(SERVICE_ID,
+                ServiceInstanceListSuppliers.toProvider(SERVICE_ID, healthy1),
+                meterRegistry, Duration.ofSeconds(10), nanoTime::get);
+
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+        Response<ServiceInstance> response = loadBalancer.choose(request).block();
+        loadBalancer.onStartRequest(request, response);
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED, request, response));
+
+        Assertions.assertEquals(1.0, meterRegistry.get("loadbalancer.instance.response.time.ewma")
+                .tag("instance", "inventory-1:8080").gauge().value(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Server-sent event streams are not counted as in-flight requests")
+    void eventStreamTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(SERVICE_ID,
+                ServiceInstanceListSuppliers.toProvider(SERVICE_ID, healthy1),
+                meterRegistry, Duration.ofSeconds(10), nanoTime::get);
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+        Response<ServiceInstance> response = loadBalancer.choose(request).block();
+        loadBalancer.onStartRequest(request, response);
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+        Request<Object> streamRequest = new DefaultRequest<>(new RequestDataContext(new RequestData(HttpMethod.GET,
+                URI.create("http://order-service/api/order/1/status"), headers, new LinkedMultiValueMap<>(), Map.of())));
+        Response<ServiceInstance> streamResponse = loadBalancer.choose(streamRequest).block();
+        loadBalancer.onStartRequest(streamRequest, streamResponse);
+        Assertions.assertEquals(0, meterRegistry.get("loadbalancer.instance.requests.inflight")
+                .tag("instance", "inventory-1:8080").gauge().value());
+
+        // The stream is closed after minutes, which must not be taken for the response time of the instance
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, streamRequest, streamResponse));
+        Assertions.assertEquals(0.001, meterRegistry.get("loadbalancer.instance.response.time.ewma")
+                .tag("instance", "inventory-1:8080").gauge().value(), 0.0001);
+    }
+
+    /**
+     * Sends a request every ARRIVAL_INTERVAL, regardless of the responses (open workload), on a simulated clock.
+     */
+    private SimulationResult simulate(ReactorServiceInstanceLoadBalancer loadBalancer,
+                                      LoadBalancerLifecycle<Object, Object, ServiceInstance> lifecycle) {
+        PriorityQueue<Completion> completions = new PriorityQueue<>(Comparator.comparingLong(Completion::at));
+        Map<ServiceInstance, Integer> requestsPerInstance = new HashMap<>();
+        List<Long> responseTimes = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            long now = i * ARRIVAL_INTERVAL;
+            while (!completions.isEmpty() && completions.peek().at() <= now) {
+                Completion completion = completions.poll();
+                nanoTime.set(completion.at());
+                if (lifecycle != null) {
+                    lifecycle.onComplete(completion.context());
+                }
+            }
+            nanoTime.set(now);
+
+            Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+            Response<ServiceInstance> response = loadBalancer.choose(request).block();
+            if (lifecycle != null) {
+                lifecycle.onStartRequest(request, response);
+            }
+
+            ServiceInstance instance = response.getServer();
+            long responseTime = instance.equals(degraded) ? DEGRADED_RESPONSE_TIME : HEALTHY_RESPONSE_TIME;
+            requestsPerInstance.merge(instance, 1, Integer::sum);
+            responseTimes.add(responseTime);
+            completions.add(new Completion(now + responseTime,
+                    new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response)));
+        }
+
+        // Let the in-flight requests complete
+        while (!completions.isEmpty()) {
+            Completion completion = completions.poll();
+            nanoTime.set(completion.at());
+            if (lifecycle != null) {
+                lifecycle.onComplete(completion.context());
+            }
+        }
+
+        Collections.sort(responseTimes);
+        return new SimulationResult(requestsPerInstance, responseTimes.get((int) (responseTimes.size() * 0.99)));
+    }
+}
@@ -0,0 +1,87 @@
+package com.microservices.money;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the time to add up order totals as BigDecimal (the prices before Money) and as long minor units (as
+ * Order.getTotal does). Only reports the numbers, run with ./gradlew :money:benchmark.
+ */
+@Tag("benchmark")
+class MoneyBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(MoneyBenchmarkTest.class);
+    private static final int ORDERS = 1_000_000;
+    private static final int LINES = 5;
+
+    private final long[] minorUnits = new long[LINES];
+    private final BigDecimal[] prices = new BigDecimal[LINES];
+    private final int[] quantities = new int[LINES];
+
+    @Test
+    @DisplayName("Benchmark: order totals as BigDecimal and as long minor units")
+    void orderTotalTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < LINES; i++) {
+            minorUnits[i] = random.nextInt(100_000);
+            prices[i] = BigDecimal.valueOf(minorUnits[i], Money.SCALE);
+            quantities[i] = 1 + random.nextInt(10);
+        }
+        Assertions.assertEquals(bigDecimalTotal().setScale(Money.SCALE), Money.ofMinorUnits(longTotal()).toBigDecimal());
+
+        // Warm up the JIT, then measure
+        measure(this::bigDecimalTotals);
+        measure(this::longTotals);
+        long bigDecimalNanos = measure(this::bigDecimalTotals);
+        long longNanos = measure(this::longTotals);
+
+        log.info("{} orders of {} lines: BigDecimal {} ns/order, long minor units {} ns/order",
+                ORDERS, LINES, (double) bigDecimalNanos / ORDERS, (double) longNanos / ORDERS);
+    }
+
+    private BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            total = total.add(prices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    private long longTotal() {
+        long total = 0;
+        for (int i = 0; i < LINES; i++) {
+            total = Math.addExact(total, Math.multiplyExact(minorUnits[i], quantities[i]));
+        }
+        return total;
+    }
+
+    // The sums of the totals are returned, so that the JIT does not drop the computations
+    private long bigDecimalTotals() {
+        long sum = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            sum += bigDecimalTotal().unscaledValue().longValue();
+        }
+        return sum;
+    }
+
+    private long longTotals() {
+        long sum = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            sum += longTotal();
+        }
+        return sum;
+    }
+
+    private static long measure(LongSupplier totals) {
+        long start = System.nanoTime();
+        Assertions.assertNotEquals(0, totals.getAsLong());
+        return System.nanoTime() - start;
+    }
+}
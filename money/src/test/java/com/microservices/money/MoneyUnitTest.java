@@ -0,0 +1,44 @@
+package com.microservices.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+class MoneyUnitTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Amounts are held as minor units, rounded half-even to 2 decimal places")
+    void minorUnitsTest() {
+        Assertions.assertEquals(1099, Money.parse("10.99").minorUnits());
+        Assertions.assertEquals(1000, Money.of(BigDecimal.TEN).minorUnits());
+        Assertions.assertEquals(2, Money.parse("0.025").minorUnits());
+        Assertions.assertEquals(4, Money.parse("0.035").minorUnits());
+        Assertions.assertEquals(new BigDecimal("10.99"), Money.ofMinorUnits(1099).toBigDecimal());
+        Assertions.assertEquals("10.99", Money.ofMinorUnits(1099).toString());
+    }
+
+    @Test
+    @DisplayName("Line totals use long arithmetic, and fail on overflow instead of wrapping around")
+    void arithmeticTest() {
+        Money lineTotal = Money.parse("10.99").times(3);
+        Assertions.assertEquals(Money.parse("32.97"), lineTotal);
+        Assertions.assertEquals(Money.parse("53.95"), lineTotal.plus(Money.parse("20.98")));
+        Assertions.assertTrue(Money.parse("10.99").compareTo(Money.parse("20.99")) < 0);
+
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.ofMinorUnits(Long.MAX_VALUE).times(2));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.ofMinorUnits(Long.MAX_VALUE).plus(Money.ofMinorUnits(1)));
+    }
+
+    @Test
+    @DisplayName("In JSON, amounts are decimal numbers")
+    void jsonTest() throws Exception {
+        Assertions.assertEquals("{\"price\":10.99}", objectMapper.writeValueAsString(Map.of("price", Money.parse("10.99"))));
+        Assertions.assertEquals(Money.parse("10.99"), objectMapper.readValue("10.99", Money.class));
+        Assertions.assertEquals(Money.parse("10"), objectMapper.readValue("10", Money.class));
+    }
+}
@@ -2,8 +2,10 @@ package com.microservices.notificationservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling   // Required for the flush of DigestAggregator's closed windows
 public class NotificationServiceApplication {
 
 	public static void main(String[] args) { SpringApplication.run(NotificationServiceApplication.class, args);	}
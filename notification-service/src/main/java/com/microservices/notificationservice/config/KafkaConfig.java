@@ -1,21 +1,151 @@
 package com.microservices.notificationservice.config;
 
+import com.microservices.notificationservice.digest.DigestChangelog;
+import com.microservices.notificationservice.metrics.ListenerMetrics;
+import com.microservices.notificationservice.retry.NotificationRetryTopics;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * In this class we'll add all the manual configuration required for Observability to
  * work.
  */
 @Configuration(proxyBeanMethods = false)
-@RequiredArgsConstructor
 public class KafkaConfig {
     private final ConcurrentKafkaListenerContainerFactory concurrentKafkaListenerContainerFactory;
+    // Lag, event age and processing time of all the listener containers (not a bean, so that Spring Boot doesn't apply it twice)
+    private final ListenerMetrics listenerMetrics;
+
+    public KafkaConfig(@Qualifier("kafkaListenerContainerFactory") ConcurrentKafkaListenerContainerFactory concurrentKafkaListenerContainerFactory,
+                       MeterRegistry meterRegistry) {
+        this.concurrentKafkaListenerContainerFactory = concurrentKafkaListenerContainerFactory;
+        this.listenerMetrics = new ListenerMetrics(meterRegistry);
+    }
 
     @PostConstruct
+    @SuppressWarnings("unchecked")
     void setup() {
         this.concurrentKafkaListenerContainerFactory.getContainerProperties().setObservationEnabled(true);
+        this.concurrentKafkaListenerContainerFactory.setRecordInterceptor(listenerMetrics);
+        this.concurrentKafkaListenerContainerFactory.getContainerProperties().setConsumerRebalanceListener(listenerMetrics);
+    }
+
+    // Keeps the lag gauges up to date while a container receives no records, see ListenerMetrics.onIdle
+    @EventListener
+    public void onListenerContainerIdle(ListenerContainerIdleEvent event) {
+        listenerMetrics.onIdle(event);
+    }
+
+    // One consumer per partition, so the partition count is the maximum useful listener concurrency
+    @Bean
+    public NewTopic notificationTopic(@Value("${notification.topic.partitions:3}") int partitions) {
+        return TopicBuilder.name(NotificationRetryTopics.MAIN_TOPIC)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(NotificationRetryTopics notificationRetryTopics,
+                                            @Value("${notification.topic.partitions:3}") int partitions) {
+        return new KafkaAdmin.NewTopics(Stream.concat(notificationRetryTopics.retryTopics().stream(),
+                        Stream.of(NotificationRetryTopics.DEAD_LETTER_TOPIC))
+                .map(topic -> TopicBuilder.name(topic).partitions(partitions).replicas(1).build())
+                .toArray(NewTopic[]::new));
+    }
+
+    // Compacted, so that only the latest state of each digest window is kept
+    @Bean
+    public NewTopic digestChangelogTopic(@Value("${notification.topic.partitions:3}") int partitions) {
+        return TopicBuilder.name(DigestChangelog.TOPIC)
+                .partitions(partitions)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
+    /**
+     * Forwards a failed record to the next retry topic (or the dead-letter topic), see NotificationRetryTopics.
+     * Used by the error handler for the records failing in the listener (e.g. deserialization), and by
+     * FailedNotificationForwarder for the notifications failing to be sent by the dispatcher's workers.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer notificationRecoverer(ProducerFactory<Object, Object> producerFactory,
+                                                               NotificationRetryTopics notificationRetryTopics) {
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        // Records which could not be deserialized are forwarded as they were received
+        templates.put(byte[].class, new KafkaTemplate<>(producerFactory,
+                Map.of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class)));
+        templates.put(Object.class, new KafkaTemplate<>(producerFactory));
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(templates, notificationRetryTopics::next);
+        recoverer.setHeadersFunction(notificationRetryTopics::dueHeaders);
+        return recoverer;
+    }
+
+    /**
+     * Error handler of all the listener containers (picked up by Spring Boot's configurer): a failed record is not
+     * retried in place, which would hold up the rest of its partition, but forwarded to the next retry topic.
+     */
+    @Bean
+    public DefaultErrorHandler notificationErrorHandler(DeadLetterPublishingRecoverer notificationRecoverer) {
+        return new DefaultErrorHandler(notificationRecoverer, new FixedBackOff(0, 0));
+    }
+
+    /**
+     * Container factory for batch listeners: each poll (up to spring.kafka.consumer.max-poll-records) is handed to the
+     * listener as a whole, and the offsets are committed once per batch.
+     * Observations are created per record by the listener, as the container only observes record listeners.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);     // Same spring.kafka.listener.* settings as the default factory
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setBatchInterceptor(listenerMetrics);
+        factory.getContainerProperties().setConsumerRebalanceListener(listenerMetrics);
+        return factory;
+    }
+
+    /**
+     * Container factory for the retry topic listeners, which acknowledge manually so that they can nack a record
+     * until it is due (pausing the consumer meanwhile).
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setObservationEnabled(true);
+        factory.setRecordInterceptor(listenerMetrics);
+        factory.getContainerProperties().setConsumerRebalanceListener(listenerMetrics);
+        return factory;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.microservices.notificationservice.controller;
+
+import com.microservices.notificationservice.retry.DeadLetterReplayer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.ExecutionException;
+
+@RestController
+@RequestMapping("/api/notification/dlt")
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterController {
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    @PostMapping("/replay")
+    @ResponseStatus(HttpStatus.OK)
+    public int replay(@RequestParam(defaultValue = "100") int maxRecords) throws InterruptedException, ExecutionException {
+        // Sample request: curl -X POST "http://localhost:<port>/api/notification/dlt/replay?maxRecords=500"
+        log.info("Received dead-letter replay request for up to {} records", maxRecords);
+        return deadLetterReplayer.replay(maxRecords);
+    }
+}
@@ -0,0 +1,102 @@
+package com.microservices.notificationservice.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Detects notifications which were already sent, keyed by e.g. the order number, in fixed memory.
+ *
+ * Keys are recorded in two generations of Bloom filters: once the current generation holds its expected insertions,
+ * it becomes the previous one and the oldest is dropped. So the memory is fixed, and a key is remembered for at least
+ * one generation's worth of insertions.
+ * As a Bloom filter may give false positives, a key it contains is only a confirmed duplicate if it is also in a
+ * bounded LRU of the most recent keys. Keys found in the Bloom filter only ("unconfirmed") are treated as new, i.e.
+ * an unlikely false positive never suppresses a notification, at the cost of missing old duplicates.
+ */
+@Component
+public class DuplicateFilter {
+    private final long generationCapacity;
+    private final double falsePositiveProbability;
+    private final AtomicReference<Generations> generations;
+    private final Set<String> recentKeys;
+
+    private final Counter newKeys;
+    private final Counter duplicates;
+    private final Counter unconfirmed;
+
+    public DuplicateFilter(MeterRegistry meterRegistry,
+                           @Value("${notification.dedup.generation-capacity:5000000}") long generationCapacity,
+                           @Value("${notification.dedup.false-positive-probability:0.001}") double falsePositiveProbability,
+                           @Value("${notification.dedup.confirmation-capacity:100000}") int confirmationCapacity) {
+        this.generationCapacity = generationCapacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.generations = new AtomicReference<>(new Generations(newGeneration(), newGeneration()));
+        this.recentKeys = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > confirmationCapacity;
+            }
+        }));
+
+        this.newKeys = meterRegistry.counter("notification.dedup.checks", "result", "new");
+        this.duplicates = meterRegistry.counter("notification.dedup.checks", "result", "duplicate");
+        // Upper bound of the false positives (the rest are duplicates older than the LRU)
+        this.unconfirmed = meterRegistry.counter("notification.dedup.checks", "result", "unconfirmed");
+        Gauge.builder("notification.dedup.false.positive.probability", generations,
+                        g -> g.get().current().expectedFalsePositiveProbability())
+                .register(meterRegistry);
+        Gauge.builder("notification.dedup.memory", generations,
+                        g -> g.get().current().sizeInBytes() + g.get().previous().sizeInBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isDuplicate(String key) {
+        Generations current = generations.get();
+        if (!current.current().mightContain(key) && !current.previous().mightContain(key)) {
+            newKeys.increment();
+            return false;
+        }
+        if (recentKeys.contains(key)) {
+            duplicates.increment();
+            return true;
+        }
+        unconfirmed.increment();
+        return false;
+    }
+
+    /**
+     * Records the key, once its notification was sent successfully (so that a failed one can still be redelivered).
+     */
+    public void record(String key) {
+        Generations current = rotateIfFull();
+        current.current().put(key);
+        recentKeys.add(key);
+    }
+
+    private Generations rotateIfFull() {
+        Generations current = generations.get();
+        if (current.current().insertions() < generationCapacity) {
+            return current;
+        }
+        Generations rotated = new Generations(newGeneration(), current.current());
+        // If another thread rotated meanwhile, use its generations
+        return generations.compareAndSet(current, rotated) ? rotated : generations.get();
+    }
+
+    private BloomFilter newGeneration() {
+        return new BloomFilter(generationCapacity, falsePositiveProbability);
+    }
+
+    private record Generations(BloomFilter current, BloomFilter previous) {
+    }
+}
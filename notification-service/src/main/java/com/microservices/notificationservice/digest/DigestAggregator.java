@@ -0,0 +1,236 @@
+package com.microservices.notificationservice.digest;
+
+import com.microservices.notificationservice.dedup.DuplicateFilter;
+import com.microservices.notificationservice.dispatch.Notification;
+import com.microservices.notificationservice.dispatch.NotificationDispatcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Aggregates the placed orders per recipient, and emits one digest notification per window instead of one per order.
+ *
+ * Windows are either tumbling (fixed, aligned intervals of window-size) or session windows (closed after window-size
+ * without orders, or after max-window-duration at the latest).
+ * Memory is bounded: a window is emitted early once it holds max-orders, and when max-open-windows are open, the
+ * oldest one is emitted early to make room for a new recipient.
+ *
+ * Only enable it on a single instance: the events are keyed by order number, so the orders of a recipient are spread
+ * over all the partitions (and instances), and every instance restores (and emits) every window of the changelog.
+ */
+@Component
+@Slf4j
+public class DigestAggregator implements SmartLifecycle {
+    public enum WindowType { TUMBLING, SESSION }
+
+    private final NotificationDispatcher notificationDispatcher;
+    private final DigestChangelog digestChangelog;
+    private final DuplicateFilter duplicateFilter;
+    private final LongSupplier clock;
+    private final boolean enabled;
+    private final WindowType windowType;
+    private final long windowSize;
+    private final long maxWindowDuration;
+    private final int maxOpenWindows;
+    private final int maxOrders;
+    // Ordered by window creation, so that the first one is the oldest
+    private final Map<String, DigestWindow> windows = new LinkedHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary digestSize;
+    private volatile boolean running;
+
+    @Autowired
+    public DigestAggregator(NotificationDispatcher notificationDispatcher, DigestChangelog digestChangelog,
+                            DuplicateFilter duplicateFilter, MeterRegistry meterRegistry,
+                            @Value("${notification.digest.enabled:false}") boolean enabled,
+                            @Value("${notification.digest.window:tumbling}") WindowType windowType,
+                            @Value("${notification.digest.window-size:5m}") Duration windowSize,
+                            @Value("${notification.digest.max-window-duration:30m}") Duration maxWindowDuration,
+                            @Value("${notification.digest.max-open-windows:10000}") int maxOpenWindows,
+                            @Value("${notification.digest.max-orders:100}") int maxOrders) {
+        this(notificationDispatcher, digestChangelog, duplicateFilter, meterRegistry, System::currentTimeMillis, enabled,
+                windowType, windowSize, maxWindowDuration, maxOpenWindows, maxOrders);
+    }
+
+    public DigestAggregator(NotificationDispatcher notificationDispatcher, DigestChangelog digestChangelog,
+                            DuplicateFilter duplicateFilter, MeterRegistry meterRegistry, LongSupplier clock,
+                            boolean enabled, WindowType windowType, Duration windowSize, Duration maxWindowDuration,
+                            int maxOpenWindows, int maxOrders) {
+        this.notificationDispatcher = notificationDispatcher;
+        this.digestChangelog = digestChangelog;
+        this.duplicateFilter = duplicateFilter;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.windowType = windowType;
+        this.windowSize = windowSize.toMillis();
+        this.maxWindowDuration = maxWindowDuration.toMillis();
+        this.maxOpenWindows = maxOpenWindows;
+        this.maxOrders = maxOrders;
+
+        this.meterRegistry = meterRegistry;
+        this.digestSize = DistributionSummary.builder("notification.digest.orders").register(meterRegistry);
+        Gauge.builder("notification.digest.windows.open", this, DigestAggregator::openWindows).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Restores the open windows from the changelog. Runs once KafkaAdmin created the (compacted) changelog topic, on
+     * startup, and before the Kafka listeners are started (see getPhase), so that no event is added meanwhile.
+     */
+    @Override
+    public void start() {
+        if (enabled) {
+            synchronized (this) {
+                digestChangelog.restore().forEach(window -> windows.put(window.recipient(), window));
+            }
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Started just before the listener containers, and stopped just after them
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+
+    /**
+     * Adds the order to the recipient's window. Emits the window right away if it closed, or memory is running out.
+     */
+    public void add(String recipient, String orderNumber) throws InterruptedException {
+        List<Emitted> emitted = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            DigestWindow window = windows.get(recipient);
+            if (window != null && isDue(window, now)) {
+                emitted.add(remove(window, "window"));
+                window = null;
+            }
+            if (window == null) {
+                if (windows.size() >= maxOpenWindows) {
+                    emitted.add(remove(windows.values().iterator().next(), "evicted"));
+                }
+                window = new DigestWindow(recipient, windowStart(now), now, List.of());
+            }
+            window = window.withOrder(orderNumber, now);
+            if (window.orderNumbers().size() >= maxOrders) {
+                emitted.add(remove(window, "full"));
+            } else {
+                windows.put(recipient, window);
+                digestChangelog.write(window);
+            }
+        }
+        // Outside of the lock, as the dispatcher blocks while its queue is full
+        for (Emitted digest : emitted) {
+            emit(digest);
+        }
+    }
+
+    /**
+     * Emits the windows which closed.
+     */
+    @Scheduled(fixedDelayString = "${notification.digest.flush-interval-ms:1000}")
+    public void flush() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        List<Emitted> emitted = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            for (Iterator<DigestWindow> iterator = windows.values().iterator(); iterator.hasNext(); ) {
+                DigestWindow window = iterator.next();
+                if (isDue(window, now)) {
+                    iterator.remove();
+                    digestChangelog.delete(window.recipient());
+                    emitted.add(new Emitted(window, "window"));
+                }
+            }
+        }
+        for (Emitted digest : emitted) {
+            emit(digest);
+        }
+    }
+
+    private long windowStart(long now) {
+        return windowType == WindowType.TUMBLING ? now - Math.floorMod(now, windowSize) : now;
+    }
+
+    private boolean isDue(DigestWindow window, long now) {
+        return switch (windowType) {
+            case TUMBLING -> now >= window.start() + windowSize;
+            case SESSION -> now >= window.lastEvent() + windowSize || now >= window.start() + maxWindowDuration;
+        };
+    }
+
+    private Emitted remove(DigestWindow window, String reason) {
+        windows.remove(window.recipient());
+        digestChangelog.delete(window.recipient());
+        return new Emitted(window, reason);
+    }
+
+    private void emit(Emitted digest) throws InterruptedException {
+        DigestWindow window = digest.window();
+        meterRegistry.counter("notification.digest.emitted", "reason", digest.reason()).increment();
+        digestSize.record(window.orderNumbers().size());
+        notificationDispatcher.dispatch(new Notification(
+                        window.recipient(),
+                        window.orderNumbers().size() + " orders placed",
+                        "order-digest",
+                        Map.of("orderNumbers", window.orderNumbers(), "count", window.orderNumbers().size())),
+                () -> window.orderNumbers().forEach(duplicateFilter::record),
+                exception -> requeue(window));
+    }
+
+    /**
+     * Puts the orders of a digest which failed to be sent back into the recipient's window, so that they are sent
+     * with its next digest instead of being lost. Never emits (unlike add), as it runs on the dispatcher's worker.
+     */
+    private synchronized void requeue(DigestWindow failed) {
+        meterRegistry.counter("notification.digest.requeued").increment();
+        long now = clock.getAsLong();
+        DigestWindow window = windows.get(failed.recipient());
+        if (window == null) {
+            window = new DigestWindow(failed.recipient(), windowStart(now), now, List.of());
+        }
+        for (String orderNumber : failed.orderNumbers()) {
+            window = window.withOrder(orderNumber, now);
+        }
+        windows.put(failed.recipient(), window);
+        digestChangelog.write(window);
+    }
+
+    private synchronized int openWindows() {
+        return windows.size();
+    }
+
+    private record Emitted(DigestWindow window, String reason) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.microservices.notificationservice.digest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compacted topic with the latest state of every open digest window, keyed by recipient (a tombstone once emitted).
+ * It is read from the beginning on startup (see DigestAggregator.start), so that the windows open before a restart are
+ * not lost.
+ */
+@Component
+@Slf4j
+public class DigestChangelog {
+    public static final String TOPIC = "notificationDigestChangelog";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    @SuppressWarnings("unchecked")
+    public DigestChangelog(ConsumerFactory<Object, Object> consumerFactory, ProducerFactory<?, ?> producerFactory,
+                           ObjectMapper objectMapper) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = new KafkaTemplate<>((ProducerFactory<String, String>) producerFactory, Map.of(
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class));
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(DigestWindow window) {
+        try {
+            kafkaTemplate.send(TOPIC, window.recipient(), objectMapper.writeValueAsString(window));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete(String recipient) {
+        kafkaTemplate.send(TOPIC, recipient, null);
+    }
+
+    /**
+     * Reads the whole changelog, and returns the windows which are still open.
+     */
+    public Collection<DigestWindow> restore() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        Map<String, DigestWindow> windows = new LinkedHashMap<>();
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(null, null, null, properties)) {
+            // Assigned rather than subscribed, so that this instance reads every partition (it holds every window)
+            List<TopicPartition> partitions = consumer.partitionsFor(TOPIC).stream()
+                    .map(partition -> new TopicPartition(TOPIC, partition.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            while (partitions.stream().anyMatch(partition -> consumer.position(partition) < endOffsets.get(partition))) {
+                for (ConsumerRecord<Object, Object> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (record.value() == null) {
+                        windows.remove((String) record.key());
+                    } else {
+                        windows.put((String) record.key(), objectMapper.readValue((String) record.value(), DigestWindow.class));
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Restored {} open digest windows from {}", windows.size(), TOPIC);
+        return windows.values();
+    }
+}
@@ -0,0 +1,19 @@
+package com.microservices.notificationservice.digest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders placed by a recipient within one window, as stored in the changelog.
+ */
+public record DigestWindow(String recipient, long start, long lastEvent, List<String> orderNumbers) {
+
+    public DigestWindow withOrder(String orderNumber, long now) {
+        if (orderNumbers.contains(orderNumber)) {
+            return this;
+        }
+        List<String> updated = new ArrayList<>(orderNumbers);
+        updated.add(orderNumber);
+        return new DigestWindow(recipient, start, now, List.copyOf(updated));
+    }
+}
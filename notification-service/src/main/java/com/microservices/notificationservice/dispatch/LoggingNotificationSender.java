@@ -0,0 +1,19 @@
+package com.microservices.notificationservice.dispatch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Only logs the notifications, for running without a mail server (notification.mail.enabled=false).
+ */
+@Component
+@ConditionalOnProperty(name = "notification.mail.enabled", havingValue = "false", matchIfMissing = true)
+@Slf4j
+public class LoggingNotificationSender implements NotificationSender {
+
+    @Override
+    public void send(String recipient, String subject, String body) {
+        log.info("Notification to {} - {}\n{}", recipient, subject, body);
+    }
+}
@@ -0,0 +1,9 @@
+package com.microservices.notificationservice.dispatch;
+
+import java.util.Map;
+
+/**
+ * Notification to render with the named template and send to the recipient.
+ */
+public record Notification(String recipient, String subject, String template, Map<String, Object> model) {
+}
@@ -0,0 +1,178 @@
+package com.microservices.notificationservice.dispatch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Decouples the Kafka listeners from sending the notifications, which takes hundreds of ms per email.
+ * The listeners put the notifications in a bounded queue, from which a pool of workers renders and sends them.
+ * When the queue is full, the listener containers of the main topic (notification.dispatch.paused-listeners) are paused,
+ * so that no more records are fetched, until the workers have drained the queue to half its capacity.
+ * The records are acknowledged once queued, so a failed send is handed back to the caller (onFailed), e.g. to forward
+ * the record to a retry topic, instead of being dropped.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+    private final NotificationTemplates notificationTemplates;
+    private final NotificationSender notificationSender;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final List<String> pausedListeners;
+    private final BlockingQueue<Queued> queue;
+    private final int resumeThreshold;
+    private final int workers;
+    private final ExecutorService workerPool;
+    private final AtomicBoolean paused = new AtomicBoolean();
+
+    private final Timer queueTime;
+    private final Timer renderTime;
+    private final Timer sendTime;
+    private final Counter failed;
+    private final Counter pauses;
+
+    public NotificationDispatcher(NotificationTemplates notificationTemplates, NotificationSender notificationSender,
+                                  KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry, MeterRegistry meterRegistry,
+                                  @Value("${notification.dispatch.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${notification.dispatch.workers:4}") int workers,
+                                  @Value("${notification.dispatch.paused-listeners:notificationListener,notificationBatchListener}") List<String> pausedListeners) {
+        this.notificationTemplates = notificationTemplates;
+        this.notificationSender = notificationSender;
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+        this.pausedListeners = pausedListeners;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.resumeThreshold = queueCapacity / 2;
+        this.workers = workers;
+        this.workerPool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("notification-sender-"));
+
+        this.queueTime = stageTimer(meterRegistry, "queue");
+        this.renderTime = stageTimer(meterRegistry, "render");
+        this.sendTime = stageTimer(meterRegistry, "send");
+        this.failed = meterRegistry.counter("notification.dispatch.failed");
+        this.pauses = meterRegistry.counter("notification.dispatch.pauses");
+        Gauge.builder("notification.dispatch.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("notification.dispatch.stage")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The queued notifications were already acknowledged to Kafka, so give the workers some time to send them
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Stopping with {} notifications not sent", queue.size());
+            workerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues the notification to be sent. Blocks the calling listener thread while the queue is full.
+     * Runs onSent on the worker thread once it was sent successfully, or onFailed with the failure otherwise.
+     */
+    public void dispatch(Notification notification, Runnable onSent, Consumer<Exception> onFailed) throws InterruptedException {
+        Queued queued = new Queued(notification, onSent, onFailed, System.nanoTime());
+        if (!queue.offer(queued)) {
+            pauseListeners();
+            queue.put(queued);
+        }
+    }
+
+    private void work() {
+        while (!workerPool.isShutdown() || !queue.isEmpty()) {
+            Queued queued;
+            try {
+                queued = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (queued == null) {
+                continue;
+            }
+            queueTime.record(System.nanoTime() - queued.queuedAt(), TimeUnit.NANOSECONDS);
+            if (paused.get() && queue.size() <= resumeThreshold) {
+                resumeListeners();
+            }
+            send(queued);
+        }
+    }
+
+    private void send(Queued queued) {
+        Notification notification = queued.notification();
+        try {
+            String body = renderTime.recordCallable(() -> notificationTemplates.render(notification.template(), notification.model()));
+            sendTime.recordCallable(() -> {
+                notificationSender.send(notification.recipient(), notification.subject(), body);
+                return null;
+            });
+        } catch (Exception e) {
+            failed.increment();
+            log.warn("Failed to send notification {} to {}", notification.subject(), notification.recipient(), e);
+            try {
+                queued.onFailed().accept(e);
+            } catch (RuntimeException onFailedException) {
+                // Keep the worker running
+                log.error("Failed to hand back notification {} to {}", notification.subject(), notification.recipient(), onFailedException);
+            }
+            return;
+        }
+        queued.onSent().run();
+    }
+
+    private void pauseListeners() {
+        if (paused.compareAndSet(false, true)) {
+            pauses.increment();
+            log.info("Notification queue is full, pausing the Kafka listeners {}", pausedListeners);
+            pausedContainers().forEach(MessageListenerContainer::pause);
+        }
+    }
+
+    private void resumeListeners() {
+        if (paused.compareAndSet(true, false)) {
+            log.info("Notification queue is drained, resuming the Kafka listeners {}", pausedListeners);
+            pausedContainers().forEach(MessageListenerContainer::resume);
+        }
+    }
+
+    // Only the main topic's containers: the retry topic and digest consumers pause and resume on their own schedule
+    private List<MessageListenerContainer> pausedContainers() {
+        return pausedListeners.stream()
+                .map(kafkaListenerEndpointRegistry::getListenerContainer)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private record Queued(Notification notification, Runnable onSent, Consumer<Exception> onFailed, long queuedAt) {
+    }
+}
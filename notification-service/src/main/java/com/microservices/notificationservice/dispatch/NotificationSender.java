@@ -0,0 +1,9 @@
+package com.microservices.notificationservice.dispatch;
+
+/**
+ * Sends a rendered notification. Called concurrently by the NotificationDispatcher workers.
+ */
+public interface NotificationSender {
+
+    void send(String recipient, String subject, String body) throws Exception;
+}
@@ -0,0 +1,37 @@
+package com.microservices.notificationservice.dispatch;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the Mustache templates in classpath:templates/notification. Each template is parsed and compiled once, and
+ * the compiled template is reused for every notification.
+ */
+@Component
+public class NotificationTemplates {
+    private final Mustache.Compiler compiler = Mustache.compiler().escapeHTML(false);   // Plain text emails
+    private final Map<String, Template> compiledTemplates = new ConcurrentHashMap<>();
+
+    public String render(String template, Map<String, Object> model) {
+        return compiledTemplates.computeIfAbsent(template, this::compile).execute(model);
+    }
+
+    private Template compile(String template) {
+        ClassPathResource resource = new ClassPathResource("templates/notification/" + template + ".mustache");
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            return compiler.compile(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read notification template " + template, e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.microservices.notificationservice.dispatch;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the notifications as emails over SMTP (spring.mail.*).
+ * Unlike JavaMailSender.send, which connects to the mail server for every message, each dispatcher worker keeps its
+ * own SMTP connection open and reuses it, i.e. there is a pool of one connection per worker.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.mail.enabled", havingValue = "true")
+@Slf4j
+public class SmtpNotificationSender implements NotificationSender {
+    private final JavaMailSenderImpl mailSender;
+    private final InternetAddress from;
+    private final ThreadLocal<Transport> workerTransport = new ThreadLocal<>();
+    private final Set<Transport> transports = ConcurrentHashMap.newKeySet();
+
+    public SmtpNotificationSender(JavaMailSenderImpl mailSender,
+                                  @Value("${notification.mail.from}") String from) throws MessagingException {
+        this.mailSender = mailSender;
+        this.from = new InternetAddress(from);
+    }
+
+    @Override
+    public void send(String recipient, String subject, String body) throws MessagingException {
+        Session session = mailSender.getSession();
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(from);
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(recipient));
+        message.setSubject(subject);
+        message.setText(body);
+        message.saveChanges();
+
+        Transport transport = connectedTransport(session);
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+            // The connection may have been dropped by the server (e.g. idle timeout), so reconnect once
+            close(transport);
+            transport = connectedTransport(session);
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+    }
+
+    private Transport connectedTransport(Session session) throws MessagingException {
+        Transport transport = workerTransport.get();
+        if (transport != null && transport.isConnected()) {
+            return transport;
+        }
+        transport = session.getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        workerTransport.set(transport);
+        transports.add(transport);
+        return transport;
+    }
+
+    private void close(Transport transport) {
+        workerTransport.remove();
+        transports.remove(transport);
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection", e);
+        }
+    }
+
+    @PreDestroy
+    void closeAll() {
+        transports.forEach(this::close);
+    }
+}
@@ -1,18 +1,144 @@
 package com.microservices.notificationservice.handler;
 
-import com.microservices.notificationservice.event.OrderPlacedEvent;
-import lombok.RequiredArgsConstructor;
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.notificationservice.dedup.DuplicateFilter;
+import com.microservices.notificationservice.digest.DigestAggregator;
+import com.microservices.notificationservice.dispatch.Notification;
+import com.microservices.notificationservice.dispatch.NotificationDispatcher;
+import com.microservices.notificationservice.retry.FailedNotificationForwarder;
+import com.microservices.notificationservice.retry.NotificationRetryTopics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.micrometer.KafkaListenerObservation;
+import org.springframework.kafka.support.micrometer.KafkaRecordReceiverContext;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class NotificationTopic {
-    @KafkaListener(topics = "notificationTopic")
-    public void handleNotification(OrderPlacedEvent orderPlacedEvent) {
-        log.info("Received Notification for Order - {}", orderPlacedEvent.getOrderNumber());
-        // TODO: Add business logic to send out an email notification
+    public static final String RECORD_LISTENER_ID = "notificationListener";
+    public static final String BATCH_LISTENER_ID = "notificationBatchListener";
+    public static final String RETRY_LISTENER_ID = "notificationRetryListener";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final NotificationDispatcher notificationDispatcher;
+    private final DuplicateFilter duplicateFilter;
+    private final NotificationRetryTopics notificationRetryTopics;
+    private final FailedNotificationForwarder failedNotificationForwarder;
+    private final DigestAggregator digestAggregator;
+    private final String recipient;
+    private volatile String clusterId;
+
+    public NotificationTopic(ObservationRegistry observationRegistry, MeterRegistry meterRegistry, KafkaAdmin kafkaAdmin,
+                             NotificationDispatcher notificationDispatcher, DuplicateFilter duplicateFilter,
+                             NotificationRetryTopics notificationRetryTopics,
+                             FailedNotificationForwarder failedNotificationForwarder, DigestAggregator digestAggregator,
+                             @Value("${notification.mail.to}") String recipient) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.notificationDispatcher = notificationDispatcher;
+        this.duplicateFilter = duplicateFilter;
+        this.notificationRetryTopics = notificationRetryTopics;
+        this.failedNotificationForwarder = failedNotificationForwarder;
+        this.digestAggregator = digestAggregator;
+        this.recipient = recipient;
+    }
+
+    // Only one of the listeners is started, depending on notification.listener.batch-enabled
+    // A failing record is forwarded to the retry topics by the error handler (see KafkaConfig), and a notification
+    // failing to be sent by FailedNotificationForwarder
+    @KafkaListener(id = RECORD_LISTENER_ID, idIsGroup = false, topics = NotificationRetryTopics.MAIN_TOPIC,
+            concurrency = "${notification.listener.concurrency:1}",
+            autoStartup = "#{!${notification.listener.batch-enabled:false}}")
+    public void handleNotification(ConsumerRecord<String, OrderPlacedEvent> record) throws InterruptedException {
+        meterRegistry.counter("notification.events.received", "mode", "record").increment();
+        notify(record);
+    }
+
+    @KafkaListener(id = BATCH_LISTENER_ID, idIsGroup = false, topics = NotificationRetryTopics.MAIN_TOPIC,
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${notification.listener.concurrency:1}",
+            autoStartup = "${notification.listener.batch-enabled:false}")
+    public void handleNotifications(List<ConsumerRecord<String, OrderPlacedEvent>> records) throws InterruptedException {
+        meterRegistry.counter("notification.events.received", "mode", "batch").increment(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, OrderPlacedEvent> record = records.get(i);
+            try {
+                // Same observation as the container creates for record listeners, which continues the producer's trace
+                KafkaListenerObservation.LISTENER_OBSERVATION.observation(null,
+                                KafkaListenerObservation.DefaultKafkaListenerObservationConvention.INSTANCE,
+                                () -> new KafkaRecordReceiverContext(record, BATCH_LISTENER_ID, this::clusterId),
+                                observationRegistry)
+                        .observeChecked(() -> notify(record));
+            } catch (RuntimeException e) {
+                // The records before it are committed, this one is forwarded to the retry topic, and the rest redelivered
+                throw new BatchListenerFailedException("Failed to notify for " + record, e, i);
+            }
+        }
+    }
+
+    /**
+     * Consumes the failed records on the retry topics, once their delay has passed.
+     * One container per retry topic, so that the records waiting for a long delay don't hold up the shorter ones.
+     */
+    @KafkaListener(id = RETRY_LISTENER_ID + "-0", idIsGroup = false, topics = NotificationRetryTopics.RETRY_TOPIC_PREFIX + 0,
+            containerFactory = "retryKafkaListenerContainerFactory")
+    @KafkaListener(id = RETRY_LISTENER_ID + "-1", idIsGroup = false, topics = NotificationRetryTopics.RETRY_TOPIC_PREFIX + 1,
+            containerFactory = "retryKafkaListenerContainerFactory")
+    @KafkaListener(id = RETRY_LISTENER_ID + "-2", idIsGroup = false, topics = NotificationRetryTopics.RETRY_TOPIC_PREFIX + 2,
+            containerFactory = "retryKafkaListenerContainerFactory")
+    public void handleRetry(ConsumerRecord<String, OrderPlacedEvent> record, Acknowledgment acknowledgment) throws InterruptedException {
+        Duration remainingDelay = notificationRetryTopics.remainingDelay(record);
+        if (remainingDelay.isPositive()) {
+            // Redelivered after the delay. The later records of the partition are due even later, as the delay is the same
+            acknowledgment.nack(remainingDelay);
+            return;
+        }
+        meterRegistry.counter("notification.events.received", "mode", "retry").increment();
+        notify(record);
+        acknowledgment.acknowledge();
+    }
+
+    private void notify(ConsumerRecord<String, OrderPlacedEvent> record) throws InterruptedException {
+        String orderNumber = record.value().getOrderNumber();
+        log.info("Received Notification for Order - {}", orderNumber);
+        // Kafka delivers at least once (e.g. after a rebalance), and the order service may publish an event again
+        if (duplicateFilter.isDuplicate(orderNumber)) {
+            log.info("Skipping duplicate Notification for Order - {}", orderNumber);
+            return;
+        }
+        // The event has no customer email yet, so all notifications go to notification.mail.to
+        if (digestAggregator.isEnabled()) {
+            digestAggregator.add(recipient, orderNumber);
+            return;
+        }
+        notificationDispatcher.dispatch(new Notification(
+                        recipient,
+                        "Order " + orderNumber + " placed",
+                        "order-placed",
+                        Map.of("orderNumber", orderNumber)),
+                () -> duplicateFilter.record(orderNumber),
+                exception -> failedNotificationForwarder.forward(record, exception));
+    }
+
+    private String clusterId() {
+        if (clusterId == null) {
+            clusterId = kafkaAdmin.clusterId();
+        }
+        return clusterId;
     }
 }
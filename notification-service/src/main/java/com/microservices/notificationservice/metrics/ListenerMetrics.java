@@ -0,0 +1,179 @@
+package com.microservices.notificationservice.metrics;
+
+import com.microservices.eventschema.EventHeaders;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumer side metrics of the listener containers, complementing the observations (traces) of the listeners:
+ * - notification.consumer.lag{topic,partition}: records behind the end of each partition assigned to this instance,
+ *   e.g. to autoscale the consumers. Updated as the records are received, and read from the broker while a container
+ *   receives none (see onIdle), e.g. paused by the NotificationDispatcher
+ * - notification.event.age{topic}: delay from the producer's send (event-sent-at header) to the listener
+ * - notification.event.processing{topic,mode,outcome}: time in the listener, per record or per batch
+ */
+@Slf4j
+public class ListenerMetrics implements RecordInterceptor<Object, Object>, BatchInterceptor<Object, Object>,
+        ConsumerAwareRebalanceListener {
+    // Bounds the broker calls of onIdle, which run on the consumer thread
+    private static final Duration END_OFFSETS_TIMEOUT = Duration.ofSeconds(5);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TopicPartition, PartitionLag> lags = new ConcurrentHashMap<>();
+    // Each consumer thread processes one record or batch at a time
+    private final ThreadLocal<Long> processingStart = new ThreadLocal<>();
+
+    public ListenerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        recordAge(record);
+        updateLag(consumer, Set.of(new TopicPartition(record.topic(), record.partition())));
+        processingStart.set(System.nanoTime());
+        return record;
+    }
+
+    @Override
+    public void success(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        recordProcessing(record.topic(), "record", "success");
+    }
+
+    @Override
+    public void failure(ConsumerRecord<Object, Object> record, Exception exception, Consumer<Object, Object> consumer) {
+        recordProcessing(record.topic(), "record", "failure");
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+        records.forEach(this::recordAge);
+        updateLag(consumer, records.partitions());
+        processingStart.set(System.nanoTime());
+        return records;
+    }
+
+    @Override
+    public void success(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+        recordProcessing(topic(records), "batch", "success");
+    }
+
+    @Override
+    public void failure(ConsumerRecords<Object, Object> records, Exception exception, Consumer<Object, Object> consumer) {
+        recordProcessing(topic(records), "batch", "failure");
+    }
+
+    // The partitions are no longer consumed by this instance, so their lag is reported by another one
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(this::removeLag);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(this::removeLag);
+    }
+
+    private void recordAge(ConsumerRecord<Object, Object> record) {
+        // Records of producers which don't set the header fall back to the record's (create) timestamp
+        long sentAt = EventHeaders.sentAt(record.headers()).orElse(record.timestamp());
+        Timer.builder("notification.event.age")
+                .tag("topic", record.topic())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(meterRegistry)
+                .record(Math.max(0, System.currentTimeMillis() - sentAt), TimeUnit.MILLISECONDS);
+    }
+
+    private void recordProcessing(String topic, String mode, String outcome) {
+        Long start = processingStart.get();
+        if (start == null) {
+            return;
+        }
+        processingStart.remove();
+        Timer.builder("notification.event.processing")
+                .tags("topic", topic, "mode", mode, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads the lag of the container's partitions from the broker, once it received no records for
+     * spring.kafka.listener.idle-event-interval: the interceptors only see records, so the lag would otherwise freeze
+     * while the container is paused (its partitions are not fetched) or its consumer gets nothing.
+     * The event is published on the consumer thread, so its consumer can be used.
+     */
+    public void onIdle(ListenerContainerIdleEvent event) {
+        Consumer<?, ?> consumer = event.getConsumer();
+        Collection<TopicPartition> partitions = event.getTopicPartitions();
+        if (consumer == null || partitions == null || partitions.isEmpty()) {
+            return;
+        }
+        try {
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions, END_OFFSETS_TIMEOUT);
+            for (TopicPartition partition : partitions) {
+                Long endOffset = endOffsets.get(partition);
+                if (endOffset != null) {
+                    setLag(partition, Math.max(0, endOffset - consumer.position(partition, END_OFFSETS_TIMEOUT)));
+                }
+            }
+        } catch (KafkaException e) {
+            log.debug("Cannot read the lag of {}: {}", partitions, e.getMessage());    // Read again on the next idle event
+        }
+    }
+
+    private void updateLag(Consumer<Object, Object> consumer, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            // From the consumer's last fetch, so no call to the broker
+            consumer.currentLag(partition).ifPresent(lag -> setLag(partition, lag));
+        }
+    }
+
+    private void setLag(TopicPartition partition, long lag) {
+        lags.computeIfAbsent(partition, this::registerLag).lag().set(lag);
+    }
+
+    private PartitionLag registerLag(TopicPartition partition) {
+        AtomicLong lag = new AtomicLong();
+        Gauge gauge = Gauge.builder("notification.consumer.lag", lag, AtomicLong::get)
+                .tags(Tags.of("topic", partition.topic(), "partition", String.valueOf(partition.partition())))
+                .register(meterRegistry);
+        return new PartitionLag(lag, gauge);
+    }
+
+    private void removeLag(TopicPartition partition) {
+        PartitionLag partitionLag = lags.remove(partition);
+        if (partitionLag != null) {
+            meterRegistry.remove(partitionLag.gauge());
+        }
+    }
+
+    private static String topic(ConsumerRecords<Object, Object> records) {
+        return records.partitions().stream().findFirst().map(TopicPartition::topic).orElse("unknown");
+    }
+
+    private record PartitionLag(AtomicLong lag, Gauge gauge) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.microservices.notificationservice.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Replays the records of the dead-letter topic to the main topic, e.g. once the cause of their failure was fixed.
+ * The records are copied as they are (without deserializing them), and the progress is committed by a dedicated
+ * consumer group, so that every replay continues where the previous one stopped.
+ */
+@Component
+@Slf4j
+public class DeadLetterReplayer {
+    private static final String REPLAY_GROUP = "notificationDltReplay";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<byte[], byte[]> kafkaTemplate;
+    private final Counter replayed;
+
+    @SuppressWarnings("unchecked")
+    public DeadLetterReplayer(ConsumerFactory<Object, Object> consumerFactory, ProducerFactory<?, ?> producerFactory,
+                              MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = new KafkaTemplate<>((ProducerFactory<byte[], byte[]>) producerFactory, Map.of(
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class));
+        this.replayed = meterRegistry.counter("notification.dlt.replayed");
+    }
+
+    /**
+     * Replays up to maxRecords records, and returns how many were replayed (fewer once the topic is drained).
+     */
+    public synchronized int replay(int maxRecords) throws InterruptedException, ExecutionException {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(maxRecords, 500));
+
+        int count = 0;
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(REPLAY_GROUP, null, null, properties)) {
+            consumer.subscribe(List.of(NotificationRetryTopics.DEAD_LETTER_TOPIC));
+            while (count < maxRecords) {
+                List<CompletableFuture<?>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<Object, Object> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (count == maxRecords) {
+                        break;      // The rest is fetched again by the next replay
+                    }
+                    sends.add(kafkaTemplate.send(toMainTopic(record)));
+                    offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                    count++;
+                }
+                if (sends.isEmpty()) {
+                    break;
+                }
+                // Commit only once the batch was written to the main topic, so that no record is lost
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get();
+                consumer.commitSync(offsets);
+                replayed.increment(sends.size());
+            }
+        }
+        log.info("Replayed {} notification events from {}", count, NotificationRetryTopics.DEAD_LETTER_TOPIC);
+        return count;
+    }
+
+    private static ProducerRecord<byte[], byte[]> toMainTopic(ConsumerRecord<Object, Object> record) {
+        ProducerRecord<byte[], byte[]> producerRecord = new ProducerRecord<>(NotificationRetryTopics.MAIN_TOPIC,
+                (byte[]) record.key(), (byte[]) record.value());
+        // Keep the original headers (e.g. the type and trace), but not those of the failed attempts
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(KafkaHeaders.PREFIX) && !header.key().equals(NotificationRetryTopics.DUE_HEADER)) {
+                producerRecord.headers().add(header);
+            }
+        }
+        return producerRecord;
+    }
+}
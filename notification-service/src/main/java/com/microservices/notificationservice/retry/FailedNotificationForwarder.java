@@ -0,0 +1,38 @@
+package com.microservices.notificationservice.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands the notifications which failed to be sent back to Kafka: as the listeners only queue them (see
+ * NotificationDispatcher), the failures happen on the dispatcher's workers, after the record was acknowledged,
+ * and never reach the container's error handler. The record is forwarded the same way the error handler does,
+ * to the next retry topic or the dead-letter topic.
+ */
+@Component
+@Slf4j
+public class FailedNotificationForwarder {
+    private final DeadLetterPublishingRecoverer notificationRecoverer;
+    private final Counter lost;
+
+    public FailedNotificationForwarder(DeadLetterPublishingRecoverer notificationRecoverer, MeterRegistry meterRegistry) {
+        this.notificationRecoverer = notificationRecoverer;
+        this.lost = meterRegistry.counter("notification.retry.lost");
+    }
+
+    /**
+     * Blocks until the record is written to its destination.
+     */
+    public void forward(ConsumerRecord<?, ?> record, Exception exception) {
+        try {
+            notificationRecoverer.accept(record, exception);
+        } catch (RuntimeException e) {
+            lost.increment();
+            log.error("Failed to forward {} to the retry topics, the notification is lost", record, e);
+        }
+    }
+}
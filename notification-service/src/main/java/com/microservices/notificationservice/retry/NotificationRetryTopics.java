@@ -0,0 +1,99 @@
+package com.microservices.notificationservice.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Routing of failed notification events: notificationTopic -> notificationTopic-retry-0 -> ... -retry-2 -> notificationTopic-dlt.
+ * Each retry topic has its own (increasing) delay, which is stored in a header as the time the record is due.
+ * Records which can never succeed, i.e. could not be deserialized, go to the dead-letter topic directly.
+ */
+@Component
+public class NotificationRetryTopics {
+    public static final String MAIN_TOPIC = "notificationTopic";
+    public static final String RETRY_TOPIC_PREFIX = MAIN_TOPIC + "-retry-";
+    public static final String DEAD_LETTER_TOPIC = MAIN_TOPIC + "-dlt";
+    public static final int RETRY_TOPICS = 3;     // One listener container each, see NotificationTopic
+    public static final String DUE_HEADER = "notification-retry-due";
+
+    private final List<Duration> delays;
+    private final MeterRegistry meterRegistry;
+
+    public NotificationRetryTopics(@Value("${notification.retry.delays:10s,1m,10m}") List<Duration> delays,
+                                   MeterRegistry meterRegistry) {
+        if (delays.size() != RETRY_TOPICS) {
+            throw new IllegalArgumentException("Expected " + RETRY_TOPICS + " retry delays, but got " + delays);
+        }
+        this.delays = delays;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public List<String> retryTopics() {
+        return IntStream.range(0, RETRY_TOPICS).mapToObj(retry -> RETRY_TOPIC_PREFIX + retry).toList();
+    }
+
+    /**
+     * Destination of the failed record. The partition is left to the producer, which keeps the records of an order together.
+     */
+    public TopicPartition next(ConsumerRecord<?, ?> record, Exception exception) {
+        String destination = nextTopic(record, exception);
+        meterRegistry.counter("notification.retry.forwarded", "topic", destination).increment();
+        return new TopicPartition(destination, -1);
+    }
+
+    /**
+     * Headers to add to the failed record, i.e. when it is due on the next retry topic.
+     */
+    public Headers dueHeaders(ConsumerRecord<?, ?> record, Exception exception) {
+        String destination = nextTopic(record, exception);
+        if (!destination.startsWith(RETRY_TOPIC_PREFIX)) {
+            return null;
+        }
+        Duration delay = delays.get(Integer.parseInt(destination.substring(RETRY_TOPIC_PREFIX.length())));
+        long due = System.currentTimeMillis() + delay.toMillis();
+        return new RecordHeaders().add(DUE_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(due).array());
+    }
+
+    /**
+     * Time until the record on a retry topic is due, zero or negative once it is.
+     */
+    public Duration remainingDelay(ConsumerRecord<?, ?> record) {
+        Header due = record.headers().lastHeader(DUE_HEADER);
+        if (due == null) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(ByteBuffer.wrap(due.value()).getLong() - System.currentTimeMillis());
+    }
+
+    private String nextTopic(ConsumerRecord<?, ?> record, Exception exception) {
+        if (record.value() == null || isDeserializationFailure(exception)) {
+            return DEAD_LETTER_TOPIC;
+        }
+        if (record.topic().equals(MAIN_TOPIC)) {
+            return RETRY_TOPIC_PREFIX + 0;
+        }
+        int retry = Integer.parseInt(record.topic().substring(RETRY_TOPIC_PREFIX.length()));
+        return retry + 1 < RETRY_TOPICS ? RETRY_TOPIC_PREFIX + (retry + 1) : DEAD_LETTER_TOPIC;
+    }
+
+    private static boolean isDeserializationFailure(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,140 @@
+package com.microservices.notificationservice;
+
+import com.microservices.notificationservice.dedup.DuplicateFilter;
+import com.microservices.notificationservice.digest.DigestAggregator;
+import com.microservices.notificationservice.digest.DigestChangelog;
+import com.microservices.notificationservice.digest.DigestWindow;
+import com.microservices.notificationservice.dispatch.Notification;
+import com.microservices.notificationservice.dispatch.NotificationDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.*;
+
+class DigestAggregatorUnitTest {
+    private static final Duration WINDOW_SIZE = Duration.ofMinutes(5);
+
+    private final NotificationDispatcher notificationDispatcher = mock(NotificationDispatcher.class);
+    private final DigestChangelog digestChangelog = mock(DigestChangelog.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(WINDOW_SIZE.toMillis() * 1000);
+
+    private DigestAggregator aggregator(DigestAggregator.WindowType windowType, int maxOpenWindows, int maxOrders) {
+        return new DigestAggregator(notificationDispatcher, digestChangelog, mock(DuplicateFilter.class), meterRegistry,
+                now::get, true, windowType, WINDOW_SIZE, Duration.ofMinutes(30), maxOpenWindows, maxOrders);
+    }
+
+    private List<Notification> dispatched() throws InterruptedException {
+        ArgumentCaptor<Notification> notifications = ArgumentCaptor.forClass(Notification.class);
+        verify(notificationDispatcher, atLeast(0)).dispatch(notifications.capture(), any(), any());
+        return notifications.getAllValues();
+    }
+
+    @Test
+    @DisplayName("Tumbling window: one digest with all the orders of the window, once it closed")
+    void tumblingWindowTest() throws InterruptedException {
+        DigestAggregator aggregator = aggregator(DigestAggregator.WindowType.TUMBLING, 100, 100);
+        aggregator.add("customer@example.com", "order-1");
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        aggregator.add("customer@example.com", "order-2");
+        aggregator.add("customer@example.com", "order-2");      // Redelivered
+
+        aggregator.flush();
+        Assertions.assertTrue(dispatched().isEmpty());
+
+        now.addAndGet(Duration.ofMinutes(3).toMillis());
+        aggregator.flush();
+        List<Notification> notifications = dispatched();
+        Assertions.assertEquals(1, notifications.size());
+        Assertions.assertEquals(List.of("order-1", "order-2"), notifications.get(0).model().get("orderNumbers"));
+        verify(digestChangelog).delete("customer@example.com");
+    }
+
+    @Test
+    @DisplayName("Session window: stays open while orders keep coming, up to the maximum duration")
+    void sessionWindowTest() throws InterruptedException {
+        DigestAggregator aggregator = aggregator(DigestAggregator.WindowType.SESSION, 100, 100);
+        for (int i = 0; i < 10; i++) {
+            aggregator.add("customer@example.com", "order-" + i);
+            now.addAndGet(Duration.ofMinutes(4).toMillis());
+            aggregator.flush();
+        }
+
+        // Closed after 30 minutes, although the gap between orders was always below 5 minutes
+        List<Notification> notifications = dispatched();
+        Assertions.assertEquals(1, notifications.size());
+        Assertions.assertEquals(8, notifications.get(0).model().get("count"));
+    }
+
+    @Test
+    @DisplayName("Memory is bounded: full windows and the oldest windows are emitted early")
+    void boundedTest() throws InterruptedException {
+        DigestAggregator aggregator = aggregator(DigestAggregator.WindowType.TUMBLING, 2, 3);
+        for (int i = 0; i < 3; i++) {
+            aggregator.add("first@example.com", "order-" + i);
+        }
+        Assertions.assertEquals(1, dispatched().size());
+
+        aggregator.add("first@example.com", "order-3");
+        aggregator.add("second@example.com", "order-4");
+        aggregator.add("third@example.com", "order-5");
+
+        List<Notification> notifications = dispatched();
+        Assertions.assertEquals(2, notifications.size());
+        Assertions.assertEquals("first@example.com", notifications.get(1).recipient());
+        Assertions.assertEquals(2, meterRegistry.get("notification.digest.windows.open").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Digest which failed to be sent is put back into the window, and sent again once it closes")
+    @SuppressWarnings("unchecked")
+    void failedDigestTest() throws InterruptedException {
+        DigestAggregator aggregator = aggregator(DigestAggregator.WindowType.TUMBLING, 100, 100);
+        aggregator.add("customer@example.com", "order-1");
+        now.addAndGet(WINDOW_SIZE.toMillis());
+        aggregator.flush();
+
+        // The mail server is down
+        ArgumentCaptor<Consumer<Exception>> onFailed = ArgumentCaptor.forClass(Consumer.class);
+        verify(notificationDispatcher).dispatch(any(), any(), onFailed.capture());
+        onFailed.getValue().accept(new IllegalStateException("Mail server unavailable"));
+        aggregator.add("customer@example.com", "order-2");
+
+        now.addAndGet(WINDOW_SIZE.toMillis());
+        aggregator.flush();
+        List<Notification> notifications = dispatched();
+        Assertions.assertEquals(2, notifications.size());
+        Assertions.assertEquals(List.of("order-1", "order-2"), notifications.get(1).model().get("orderNumbers"));
+        Assertions.assertEquals(1, meterRegistry.get("notification.digest.requeued").counter().count());
+    }
+
+    @Test
+    @DisplayName("Open windows are restored from the changelog on start, before the listeners, and emitted once closed")
+    void restoreTest() throws InterruptedException {
+        long windowStart = now.get();
+        when(digestChangelog.restore()).thenReturn(List.of(
+                new DigestWindow("customer@example.com", windowStart, windowStart, List.of("order-1"))));
+        DigestAggregator aggregator = aggregator(DigestAggregator.WindowType.TUMBLING, 100, 100);
+        verify(digestChangelog, never()).restore();
+        Assertions.assertTrue(aggregator.getPhase() < AbstractMessageListenerContainer.DEFAULT_PHASE);
+
+        aggregator.start();
+        Assertions.assertTrue(aggregator.isRunning());
+        aggregator.add("customer@example.com", "order-2");
+
+        now.addAndGet(WINDOW_SIZE.toMillis());
+        aggregator.flush();
+        List<Notification> notifications = dispatched();
+        Assertions.assertEquals(1, notifications.size());
+        Assertions.assertEquals(List.of("order-1", "order-2"), notifications.get(0).model().get("orderNumbers"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.microservices.notificationservice;
+
+import com.microservices.notificationservice.dedup.DuplicateFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+class DuplicateFilterUnitTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private double checks(String result) {
+        return meterRegistry.get("notification.dedup.checks").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("Recorded order numbers are duplicates, others are not")
+    void duplicateTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(meterRegistry, 1000, 0.001, 100);
+
+        Assertions.assertFalse(duplicateFilter.isDuplicate("order-1"));
+        duplicateFilter.record("order-1");
+
+        Assertions.assertTrue(duplicateFilter.isDuplicate("order-1"));
+        Assertions.assertFalse(duplicateFilter.isDuplicate("order-2"));
+        Assertions.assertEquals(1, checks("duplicate"));
+    }
+
+    @Test
+    @DisplayName("False positives of the Bloom filter are not suppressed, and stay near the configured probability")
+    void falsePositiveTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(meterRegistry, 10_000, 0.01, 100);
+        for (int i = 0; i < 10_000; i++) {
+            duplicateFilter.record(UUID.randomUUID().toString());
+        }
+
+        int suppressed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (duplicateFilter.isDuplicate(UUID.randomUUID().toString())) {
+                suppressed++;
+            }
+        }
+
+        Assertions.assertEquals(0, suppressed);
+        Assertions.assertTrue(checks("unconfirmed") < 200, "False positives: " + checks("unconfirmed"));
+    }
+
+    @Test
+    @DisplayName("Memory is fixed, old generations are dropped")
+    void rotationTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(meterRegistry, 1000, 0.01, 100);
+        double memory = meterRegistry.get("notification.dedup.memory").gauge().value();
+        duplicateFilter.record("order-1");
+        for (int i = 0; i < 1000; i++) {
+            duplicateFilter.record(UUID.randomUUID().toString());
+        }
+        // Still in the previous generation, but no longer in the LRU to confirm it
+        Assertions.assertFalse(duplicateFilter.isDuplicate("order-1"));
+        Assertions.assertEquals(1, checks("unconfirmed"));
+
+        for (int i = 0; i < 5000; i++) {
+            duplicateFilter.record(UUID.randomUUID().toString());
+        }
+
+        Assertions.assertFalse(duplicateFilter.isDuplicate("order-1"));
+        Assertions.assertEquals(memory, meterRegistry.get("notification.dedup.memory").gauge().value());
+    }
+}
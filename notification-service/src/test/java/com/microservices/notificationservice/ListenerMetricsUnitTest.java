@@ -0,0 +1,76 @@
+package com.microservices.notificationservice;
+
+import com.microservices.eventschema.EventHeaders;
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.notificationservice.metrics.ListenerMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+class ListenerMetricsUnitTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ListenerMetrics listenerMetrics = new ListenerMetrics(meterRegistry);
+    @SuppressWarnings("unchecked")
+    private final Consumer<Object, Object> consumer = mock(Consumer.class);
+
+    @Test
+    @DisplayName("Event age from the producer's header, processing time, and lag of the partition")
+    void recordMetricsTest() {
+        TopicPartition partition = new TopicPartition("notificationTopic", 1);
+        when(consumer.currentLag(partition)).thenReturn(OptionalLong.of(42));
+        ConsumerRecord<Object, Object> record = new ConsumerRecord<>("notificationTopic", 1, 0, "order-1", new OrderPlacedEvent("order-1"));
+        EventHeaders.addSentAt(record.headers(), System.currentTimeMillis() - 5000);
+
+        listenerMetrics.intercept(record, consumer);
+        listenerMetrics.success(record, consumer);
+
+        Timer age = meterRegistry.get("notification.event.age").tag("topic", "notificationTopic").timer();
+        Assertions.assertEquals(1, age.count());
+        Assertions.assertTrue(age.totalTime(TimeUnit.MILLISECONDS) >= 5000);
+        Assertions.assertEquals(1, meterRegistry.get("notification.event.processing").tag("outcome", "success").timer().count());
+        Assertions.assertEquals(42, meterRegistry.get("notification.consumer.lag").tag("partition", "1").gauge().value());
+    }
+
+    @Test
+    @DisplayName("The lag of revoked partitions is no longer reported")
+    void revokedPartitionTest() {
+        TopicPartition partition = new TopicPartition("notificationTopic", 2);
+        when(consumer.currentLag(partition)).thenReturn(OptionalLong.of(7));
+        ConsumerRecord<Object, Object> record = new ConsumerRecord<>("notificationTopic", 2, 0, "order-1", new OrderPlacedEvent("order-1"));
+        listenerMetrics.intercept(record, consumer);
+
+        listenerMetrics.onPartitionsRevokedAfterCommit(consumer, List.of(partition));
+
+        Assertions.assertNull(meterRegistry.find("notification.consumer.lag").gauge());
+    }
+
+    @Test
+    @DisplayName("The lag keeps being read from the broker while the container receives no records, e.g. paused")
+    void idleContainerLagTest() {
+        TopicPartition partition = new TopicPartition("notificationTopic", 0);
+        when(consumer.currentLag(partition)).thenReturn(OptionalLong.of(3));
+        listenerMetrics.intercept(new ConsumerRecord<>("notificationTopic", 0, 10, "order-1", new OrderPlacedEvent("order-1")), consumer);
+
+        // Paused, while the producers keep sending
+        when(consumer.endOffsets(eq(List.of(partition)), any(Duration.class))).thenReturn(Map.of(partition, 500L));
+        when(consumer.position(eq(partition), any(Duration.class))).thenReturn(11L);
+        listenerMetrics.onIdle(new ListenerContainerIdleEvent(this, this, 30_000, "notificationListener",
+                List.of(partition), consumer, true));
+
+        Assertions.assertEquals(489, meterRegistry.get("notification.consumer.lag").tag("partition", "0").gauge().value());
+    }
+}
@@ -0,0 +1,130 @@
+package com.microservices.notificationservice;
+
+import com.microservices.notificationservice.dispatch.Notification;
+import com.microservices.notificationservice.dispatch.NotificationDispatcher;
+import com.microservices.notificationservice.dispatch.NotificationSender;
+import com.microservices.notificationservice.dispatch.NotificationTemplates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+class NotificationDispatcherUnitTest {
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry = mock(KafkaListenerEndpointRegistry.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final MessageListenerContainer retryContainer = mock(MessageListenerContainer.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationDispatcher notificationDispatcher;
+
+    /**
+     * Local stand-in for the SMTP server, which keeps the sent emails.
+     */
+    private record SentEmail(String recipient, String subject, String body) {
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        notificationDispatcher.stop();
+    }
+
+    private NotificationDispatcher startDispatcher(NotificationSender notificationSender, int queueCapacity) {
+        when(kafkaListenerEndpointRegistry.getListenerContainers()).thenReturn(List.of(container, retryContainer));
+        when(kafkaListenerEndpointRegistry.getListenerContainer("notificationListener")).thenReturn(container);
+        when(kafkaListenerEndpointRegistry.getListenerContainer("notificationRetryListener-0")).thenReturn(retryContainer);
+        notificationDispatcher = new NotificationDispatcher(new NotificationTemplates(), notificationSender,
+                kafkaListenerEndpointRegistry, meterRegistry, queueCapacity, 1,
+                List.of("notificationListener", "notificationBatchListener"));
+        notificationDispatcher.start();
+        return notificationDispatcher;
+    }
+
+    private static Notification orderPlaced(String orderNumber) {
+        return new Notification("customer@example.com", "Order " + orderNumber + " placed", "order-placed",
+                Map.of("orderNumber", orderNumber));
+    }
+
+    private void dispatch(Notification notification) throws InterruptedException {
+        notificationDispatcher.dispatch(notification, () -> {}, exception -> {});
+    }
+
+    @Test
+    @DisplayName("Notification is rendered from its template and sent by a worker")
+    void dispatchTest() throws InterruptedException {
+        BlockingQueue<SentEmail> outbox = new LinkedBlockingQueue<>();
+        startDispatcher((recipient, subject, body) -> outbox.add(new SentEmail(recipient, subject, body)), 10);
+
+        dispatch(orderPlaced("1234"));
+
+        SentEmail sent = outbox.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(sent);
+        Assertions.assertEquals("customer@example.com", sent.recipient());
+        Assertions.assertEquals("Order 1234 placed", sent.subject());
+        Assertions.assertTrue(sent.body().contains("Your order 1234 has been placed"));
+        Assertions.assertEquals(1, meterRegistry.get("notification.dispatch.stage").tag("stage", "send").timer().count());
+    }
+
+    @Test
+    @DisplayName("Kafka listeners are paused while the queue is full, and resumed once it is drained")
+    void backpressureTest() throws InterruptedException {
+        CountDownLatch sendAllowed = new CountDownLatch(1);
+        CountDownLatch allSent = new CountDownLatch(3);
+        startDispatcher((recipient, subject, body) -> {
+            sendAllowed.await();    // Slow mail server
+            allSent.countDown();
+        }, 1);
+
+        dispatch(orderPlaced("1"));  // Taken by the worker, which blocks on the mail server
+        Thread.sleep(200);
+        dispatch(orderPlaced("2"));  // Fills the queue
+
+        Thread dispatching = new Thread(() -> {
+            try {
+                dispatch(orderPlaced("3"));  // Blocks while the queue is full
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatching.start();
+        verify(container, timeout(5000)).pause();
+
+        sendAllowed.countDown();
+        Assertions.assertTrue(allSent.await(5, TimeUnit.SECONDS));
+        verify(container, timeout(5000)).resume();
+        dispatching.join(5000);
+
+        // The retry topic listeners are left running
+        verify(retryContainer, never()).pause();
+    }
+
+    @Test
+    @DisplayName("Failed send is counted and handed back, and does not stop the worker")
+    void failedSendTest() throws InterruptedException {
+        CountDownLatch sent = new CountDownLatch(1);
+        BlockingQueue<Exception> failures = new LinkedBlockingQueue<>();
+        startDispatcher((recipient, subject, body) -> {
+            if (subject.contains("fail")) {
+                throw new IllegalStateException("Mail server unavailable");
+            }
+            sent.countDown();
+        }, 10);
+
+        notificationDispatcher.dispatch(orderPlaced("fail"), () -> {}, failures::add);
+        dispatch(orderPlaced("1234"));
+
+        Assertions.assertTrue(sent.await(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalStateException.class, failures.poll(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, meterRegistry.get("notification.dispatch.failed").counter().count());
+    }
+}
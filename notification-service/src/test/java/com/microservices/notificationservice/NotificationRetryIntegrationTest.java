@@ -0,0 +1,78 @@
+package com.microservices.notificationservice;
+
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.notificationservice.dispatch.NotificationSender;
+import com.microservices.notificationservice.retry.NotificationRetryTopics;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * A notification which fails to be sent goes through the retry topics, and ends up on the dead-letter topic,
+ * against an embedded Kafka broker. The retry delays are 0, so that the retries are consumed right away.
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "management.tracing.sampling.probability=0.0",
+        "notification.retry.delays=0s,0s,0s",
+        "spring.kafka.consumer.auto-offset-reset=earliest"
+})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class NotificationRetryIntegrationTest {
+    @Autowired
+    private KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate;
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+    @MockBean
+    private NotificationSender notificationSender;
+
+    @Test
+    @DisplayName("Notification failing to be sent goes to the first retry topic, and finally to the dead-letter topic")
+    void failedSendTest() throws Exception {
+        doThrow(new IllegalStateException("Mail server unavailable"))
+                .when(notificationSender).send(anyString(), anyString(), anyString());
+        String orderNumber = UUID.randomUUID().toString();
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("retryTest", "false", embeddedKafkaBroker);
+        try (Consumer<String, byte[]> consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(), new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(NotificationRetryTopics.RETRY_TOPIC_PREFIX + 0, NotificationRetryTopics.DEAD_LETTER_TOPIC));
+
+            kafkaTemplate.send(NotificationRetryTopics.MAIN_TOPIC, orderNumber, new OrderPlacedEvent(orderNumber));
+
+            List<String> topics = new ArrayList<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (!topics.contains(NotificationRetryTopics.DEAD_LETTER_TOPIC) && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+                    if (orderNumber.equals(record.key())) {
+                        topics.add(record.topic());
+                    }
+                }
+            }
+
+            Assertions.assertEquals(List.of(NotificationRetryTopics.RETRY_TOPIC_PREFIX + 0, NotificationRetryTopics.DEAD_LETTER_TOPIC), topics);
+        }
+        // Sent once from the main topic, and once from each retry topic
+        verify(notificationSender, times(1 + NotificationRetryTopics.RETRY_TOPICS)).send(anyString(), anyString(), anyString());
+    }
+}
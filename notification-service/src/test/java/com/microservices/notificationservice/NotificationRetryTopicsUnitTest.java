@@ -0,0 +1,57 @@
+package com.microservices.notificationservice;
+
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.notificationservice.retry.NotificationRetryTopics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.time.Duration;
+import java.util.List;
+
+class NotificationRetryTopicsUnitTest {
+    private final NotificationRetryTopics notificationRetryTopics = new NotificationRetryTopics(
+            List.of(Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofMinutes(10)), new SimpleMeterRegistry());
+
+    private static ConsumerRecord<String, Object> record(String topic, Object value) {
+        return new ConsumerRecord<>(topic, 0, 0, "order-1", value);
+    }
+
+    @Test
+    @DisplayName("Failed events go through each retry topic, then to the dead-letter topic")
+    void routingTest() {
+        RuntimeException failure = new RuntimeException("SMTP server unavailable");
+        OrderPlacedEvent event = new OrderPlacedEvent("order-1");
+
+        Assertions.assertEquals("notificationTopic-retry-0", notificationRetryTopics.next(record("notificationTopic", event), failure).topic());
+        Assertions.assertEquals("notificationTopic-retry-1", notificationRetryTopics.next(record("notificationTopic-retry-0", event), failure).topic());
+        Assertions.assertEquals("notificationTopic-retry-2", notificationRetryTopics.next(record("notificationTopic-retry-1", event), failure).topic());
+        Assertions.assertEquals("notificationTopic-dlt", notificationRetryTopics.next(record("notificationTopic-retry-2", event), failure).topic());
+    }
+
+    @Test
+    @DisplayName("Events which cannot be deserialized go to the dead-letter topic directly")
+    void poisonTest() {
+        Exception failure = new RuntimeException(new DeserializationException("Not JSON", new byte[]{1}, false, null));
+
+        Assertions.assertEquals("notificationTopic-dlt", notificationRetryTopics.next(record("notificationTopic", null), failure).topic());
+        Assertions.assertNull(notificationRetryTopics.dueHeaders(record("notificationTopic", null), failure));
+    }
+
+    @Test
+    @DisplayName("Retried events are due after the delay of their retry topic")
+    void delayTest() {
+        ConsumerRecord<String, Object> failed = record("notificationTopic-retry-0", new OrderPlacedEvent("order-1"));
+        Headers headers = notificationRetryTopics.dueHeaders(failed, new RuntimeException());
+
+        ConsumerRecord<String, Object> retried = record("notificationTopic-retry-1", failed.value());
+        headers.forEach(header -> retried.headers().add(header));
+        Duration remainingDelay = notificationRetryTopics.remainingDelay(retried);
+
+        Assertions.assertTrue(remainingDelay.compareTo(Duration.ofSeconds(50)) > 0 && remainingDelay.compareTo(Duration.ofMinutes(1)) <= 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.microservices.notificationservice;
+
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.notificationservice.handler.NotificationTopic;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Compares the consumption throughput of the record listener and the batch listener, against an embedded Kafka broker.
+ * Both listeners are in the same consumer group, and only one of them is running at a time.
+ * Only reports the numbers, run with ./gradlew :notification-service:benchmark.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "management.tracing.sampling.probability=0.0",
+        "logging.level.com.microservices.notificationservice=warn",
+        "notification.mail.enabled=false",
+        "notification.listener.batch-enabled=false",
+        "spring.kafka.consumer.auto-offset-reset=earliest"
+})
+@EmbeddedKafka(partitions = 3, topics = "notificationTopic", bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class NotificationThroughputBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(NotificationThroughputBenchmarkTest.class);
+    private static final int EVENTS = 20_000;
+    private static final int PARTITIONS = 3;
+
+    @Autowired
+    private KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate;
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Benchmark: events per second consumed by the record listener and by the batch listener")
+    void listenerThroughputTest() throws InterruptedException {
+        MessageListenerContainer recordListener = kafkaListenerEndpointRegistry.getListenerContainer(NotificationTopic.RECORD_LISTENER_ID);
+        MessageListenerContainer batchListener = kafkaListenerEndpointRegistry.getListenerContainer(NotificationTopic.BATCH_LISTENER_ID);
+
+        double recordThroughput = measureThroughput(recordListener, "record");
+        recordListener.stop();
+        batchListener.start();
+        double batchThroughput = measureThroughput(batchListener, "batch");
+
+        // At warn, as the logging level of the package is lowered to warn above
+        log.warn("Consumed {} events: record listener {} events/s, batch listener {} events/s",
+                EVENTS, Math.round(recordThroughput), Math.round(batchThroughput));
+    }
+
+    private double measureThroughput(MessageListenerContainer container, String mode) throws InterruptedException {
+        ContainerTestUtils.waitForAssignment(container, PARTITIONS);
+
+        for (int i = 0; i < EVENTS; i++) {
+            String orderNumber = UUID.randomUUID().toString();
+            kafkaTemplate.send("notificationTopic", orderNumber, new OrderPlacedEvent(orderNumber));
+        }
+        kafkaTemplate.flush();
+
+        // Only the consumption is timed, from the moment all events are available
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofMinutes(1).toNanos();
+        while (received(mode) < EVENTS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Assertions.assertEquals(EVENTS, received(mode));
+        return EVENTS / (elapsed.toNanos() / 1e9);
+    }
+
+    private double received(String mode) {
+        return meterRegistry.counter("notification.events.received", "mode", mode).count();
+    }
+}
@@ -2,8 +2,10 @@ package com.microservices.orderservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling   // Required for the background refresh of ProductPriceTable
 public class OrderServiceApplication {
 
 	public static void main(String[] args) {
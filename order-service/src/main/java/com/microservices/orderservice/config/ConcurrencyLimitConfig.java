@@ -0,0 +1,33 @@
+package com.microservices.orderservice.config;
+
+import com.microservices.orderservice.limiter.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class ConcurrencyLimitConfig {
+
+    // In front of OrderController.placeOrder (see OrderPlacementLimitFilter)
+    @Bean
+    public AdaptiveConcurrencyLimiter orderPlacementLimiter(MeterRegistry meterRegistry,
+                                                            @Value("${order.concurrency-limit.placement.initial-limit:20}") int initialLimit,
+                                                            @Value("${order.concurrency-limit.placement.min-limit:2}") int minLimit,
+                                                            @Value("${order.concurrency-limit.placement.max-limit:200}") int maxLimit,
+                                                            @Value("${order.concurrency-limit.placement.latency-threshold:1s}") Duration latencyThreshold) {
+        return new AdaptiveConcurrencyLimiter("order-placement", initialLimit, minLimit, maxLimit, latencyThreshold, meterRegistry);
+    }
+
+    // Around the WebClient calls to inventory-service (see WebClientConfig)
+    @Bean
+    public AdaptiveConcurrencyLimiter inventoryCallLimiter(MeterRegistry meterRegistry,
+                                                           @Value("${order.concurrency-limit.inventory.initial-limit:20}") int initialLimit,
+                                                           @Value("${order.concurrency-limit.inventory.min-limit:2}") int minLimit,
+                                                           @Value("${order.concurrency-limit.inventory.max-limit:200}") int maxLimit,
+                                                           @Value("${order.concurrency-limit.inventory.latency-threshold:500ms}") Duration latencyThreshold) {
+        return new AdaptiveConcurrencyLimiter("inventory-call", initialLimit, minLimit, maxLimit, latencyThreshold, meterRegistry);
+    }
+}
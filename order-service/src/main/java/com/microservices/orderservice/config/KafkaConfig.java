@@ -1,21 +1,84 @@
 package com.microservices.orderservice.config;
 
+import com.microservices.eventschema.OrderRequestedEvent;
+import com.microservices.orderservice.service.OrderEventPublisher;
+import com.microservices.orderservice.service.OrderService;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.time.Duration;
 
 /**
  * In this class we'll add all the manual configuration required for Observability to
  * work.
  */
 @Configuration(proxyBeanMethods = false)
-@RequiredArgsConstructor
+@Slf4j
 public class KafkaConfig {
     private final KafkaTemplate kafkaTemplate;
+    private final ConcurrentKafkaListenerContainerFactory concurrentKafkaListenerContainerFactory;
+
+    public KafkaConfig(KafkaTemplate kafkaTemplate,
+                       @Qualifier("kafkaListenerContainerFactory") ConcurrentKafkaListenerContainerFactory concurrentKafkaListenerContainerFactory) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.concurrentKafkaListenerContainerFactory = concurrentKafkaListenerContainerFactory;
+    }
 
     @PostConstruct
     void setup() {
         this.kafkaTemplate.setObservationEnabled(true);
+        this.concurrentKafkaListenerContainerFactory.getContainerProperties().setObservationEnabled(true);
+    }
+
+    // One consumer per partition (order.async.concurrency), so the partition count bounds the processing parallelism
+    @Bean
+    public NewTopic orderRequestedTopic(@Value("${order.async.partitions:3}") int partitions) {
+        return TopicBuilder.name(OrderEventPublisher.ORDER_REQUESTED_TOPIC)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    // Only read by the instances running at the time of the change (see OrderStatusListener), so kept for a short time
+    @Bean
+    public NewTopic orderStatusTopic(@Value("${order.async.partitions:3}") int partitions) {
+        return TopicBuilder.name(OrderEventPublisher.ORDER_STATUS_TOPIC)
+                .partitions(partitions)
+                .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()))
+                .build();
+    }
+
+    /**
+     * Error handler of the listener containers (picked up by Spring Boot's configurer): an order which fails to be
+     * processed (e.g. inventory-service is down) is retried with exponential backoff, and rejected once the retries
+     * are exhausted, so that the order doesn't stay PENDING. The retries are safe, see OrderService.processOrder.
+     */
+    @Bean
+    public DefaultErrorHandler orderRequestErrorHandler(OrderService orderService,
+                                                        @Value("${order.async.max-retries:5}") int maxRetries) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(maxRetries);
+        backOff.setInitialInterval(1000);
+        backOff.setMultiplier(2);
+        backOff.setMaxInterval(30_000);
+        return new DefaultErrorHandler((record, exception) -> {
+            if (record.value() instanceof OrderRequestedEvent orderRequestedEvent) {
+                log.error("Rejecting Order - {} after {} retries", orderRequestedEvent.getOrderNumber(), maxRetries, exception);
+                orderService.rejectOrder(orderRequestedEvent.getOrderNumber());
+            } else {
+                log.error("Skipping record {}", record, exception);
+            }
+        }, backOff);
     }
-}
\ No newline at end of file
+}
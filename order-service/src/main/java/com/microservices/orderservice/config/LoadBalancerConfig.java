@@ -0,0 +1,13 @@
+package com.microservices.orderservice.config;
+
+import com.microservices.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the default round robin load balancer of the @LoadBalanced WebClient with PeakEwmaLoadBalancer, for all services.
+ */
+@Configuration(proxyBeanMethods = false)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
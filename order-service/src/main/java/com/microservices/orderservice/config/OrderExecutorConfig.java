@@ -0,0 +1,25 @@
+package com.microservices.orderservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration(proxyBeanMethods = false)
+public class OrderExecutorConfig {
+
+    // Runs OrderService.placeOrder for OrderController. Unlike the common ForkJoinPool used by supplyAsync, the tasks
+    // of an ExecutorService can be interrupted, which lets a timed out order placement stop where it is
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService orderPlacementExecutor(@Value("${order.placement-executor.threads:20}") int threads,
+                                                  @Value("${order.placement-executor.queue-capacity:100}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("order-placement-"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.microservices.orderservice.config;
+
+import com.microservices.orderservice.limiter.LimitExceededException;
+import com.microservices.orderservice.limiter.RetryBudget;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.common.retry.configuration.RetryConfigCustomizer;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+@Configuration(proxyBeanMethods = false)
+public class RetryConfig {
+
+    @Bean
+    public RetryBudget inventoryRetryBudget(MeterRegistry meterRegistry,
+                                            @Value("${order.retry-budget.retry-ratio:0.1}") double retryRatio,
+                                            @Value("${order.retry-budget.max-retries:10}") int maxRetries) {
+        return new RetryBudget("inventory", retryRatio, maxRetries, meterRegistry);
+    }
+
+    // Only retry within the budget (on top of resilience4j.retry.instances.inventory.*), and never retry calls which
+    // were shed by the concurrency limiter or the open circuit breaker (see OrderController.fallbackMethod), or timed
+    // out (TimeoutException) or cancelled by the time limiter, as a retry would only add load, nor the orders rejected
+    // as invalid (ResponseStatusException 4xx), which would fail again
+    @Bean
+    public RetryConfigCustomizer inventoryRetryConfigCustomizer(RetryBudget inventoryRetryBudget) {
+        return RetryConfigCustomizer.of("inventory", builder -> builder.retryOnException(throwable ->
+                !isShedOrTimedOut(throwable) && !isClientError(throwable) && inventoryRetryBudget.tryRetry()));
+    }
+
+    // resilience4j asks the predicate before checking the remaining attempts, so the retry withdrawn for the last
+    // attempt, which is not retried after all, is put back into the budget
+    @Bean
+    public RegistryEventConsumer<Retry> inventoryRetryBudgetRefund(RetryBudget inventoryRetryBudget) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Retry> entryAddedEvent) {
+                Retry retry = entryAddedEvent.getAddedEntry();
+                if ("inventory".equals(retry.getName())) {
+                    retry.getEventPublisher().onError(event -> inventoryRetryBudget.refund());
+                }
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Retry> entryRemoveEvent) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Retry> entryReplacedEvent) {
+            }
+        };
+    }
+
+    private static boolean isShedOrTimedOut(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LimitExceededException || cause instanceof CallNotPermittedException
+                    || cause instanceof TimeoutException
+                    || cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isClientError(Throwable throwable) {
+        return throwable instanceof ResponseStatusException responseStatusException
+                && responseStatusException.getStatusCode().is4xxClientError();
+    }
+}
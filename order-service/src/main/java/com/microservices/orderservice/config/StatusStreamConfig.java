@@ -0,0 +1,37 @@
+package com.microservices.orderservice.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC writes the server-sent events of the order status streams (see OrderController) from an executor.
+ * Spring Boot's applicationTaskExecutor is not created (as orderPlacementExecutor is an Executor), and the fallback
+ * starts a thread per write, so a bounded pool is configured instead.
+ */
+@Configuration(proxyBeanMethods = false)
+public class StatusStreamConfig implements WebMvcConfigurer {
+    private final ThreadPoolTaskExecutor statusStreamExecutor;
+
+    public StatusStreamConfig(@Qualifier("statusStreamExecutor") ThreadPoolTaskExecutor statusStreamExecutor) {
+        this.statusStreamExecutor = statusStreamExecutor;
+    }
+
+    @Bean
+    public static ThreadPoolTaskExecutor statusStreamExecutor(@Value("${order.status-stream.writer-threads:8}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("status-stream-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(statusStreamExecutor);
+    }
+}
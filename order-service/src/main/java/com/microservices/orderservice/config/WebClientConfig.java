@@ -1,12 +1,24 @@
 package com.microservices.orderservice.config;
 
+import com.microservices.orderservice.limiter.AdaptiveConcurrencyLimiter;
+import com.microservices.orderservice.limiter.LimitExceededException;
 import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.DefaultClientRequestObservationConvention;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * This class is used to create a bean for WebClient to make calls to other microservices.
@@ -14,15 +26,65 @@ import org.springframework.web.reactive.function.client.WebClient;
  */
 @Configuration(proxyBeanMethods = false)
 public class WebClientConfig {
+    private static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
     @Bean
     @LoadBalanced
-    public WebClient.Builder webClientBuilder(ObservationRegistry observationRegistry) {
+    public WebClient.Builder webClientBuilder(ObservationRegistry observationRegistry,
+                                              @Value("${order.internal-codec.smile-enabled:false}") boolean smileEnabled,
+                                              @Qualifier("inventoryCallLimiter") AdaptiveConcurrencyLimiter inventoryCallLimiter) {
         WebClient.Builder builder = WebClient.builder()
                 .observationRegistry(observationRegistry)  // Enable micrometer instrumentation (Sets "observationRegistry" property to SimpleObservationRegistry)
-                .observationConvention(new DefaultClientRequestObservationConvention());    // Sets "observationConvention" property to DefaultClientRequestObservationConvention (with "name"="http.client.request")
+                .observationConvention(new DefaultClientRequestObservationConvention())    // Sets "observationConvention" property to DefaultClientRequestObservationConvention (with "name"="http.client.request")
+                .filter(concurrencyLimit("inventory-service", inventoryCallLimiter));
+        if (smileEnabled) {
+            builder.filter(smileContentNegotiation());
+        }
         return builder;
     }
 
+    /**
+     * Negotiates the binary Smile format (instead of JSON) for calls to other microservices.
+     * JSON is still accepted, so a service without the Smile codec on its classpath keeps working.
+     */
+    private static ExchangeFilterFunction smileContentNegotiation() {
+        return (request, next) -> next.exchange(ClientRequest.from(request)
+                .headers(headers -> {
+                    headers.setAccept(List.of(APPLICATION_SMILE, MediaType.APPLICATION_JSON));
+                    if (request.method() != HttpMethod.GET) {
+                        headers.setContentType(APPLICATION_SMILE);  // The request body is encoded with the codec matching the Content-Type
+                    }
+                })
+                .build());
+    }
+
+    /**
+     * Rejects calls to the service above the limiter's adaptive concurrency limit with LimitExceededException,
+     * instead of adding more load to a service which is already slowing down.
+     */
+    private static ExchangeFilterFunction concurrencyLimit(String serviceId, AdaptiveConcurrencyLimiter limiter) {
+        return (request, next) -> {
+            if (!serviceId.equals(request.url().getHost())) {
+                return next.exchange(request);
+            }
+            Optional<AdaptiveConcurrencyLimiter.Permit> acquired = limiter.tryAcquire();
+            if (acquired.isEmpty()) {
+                return Mono.error(new LimitExceededException("Concurrency limit reached for " + serviceId));
+            }
+            AdaptiveConcurrencyLimiter.Permit permit = acquired.get();
+            return next.exchange(request)
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            permit.dropped();
+                        } else {
+                            permit.success();
+                        }
+                    })
+                    .doOnError(e -> permit.dropped())
+                    .doOnCancel(permit::cancelled);    // e.g. the losing request of a hedge
+        };
+    }
+
     @Bean
     public WebClient webClient(WebClient.Builder builder) {
         return builder.build();
@@ -1,7 +1,9 @@
 package com.microservices.orderservice.controller;
 
 import com.microservices.orderservice.dto.OrderRequest;
+import com.microservices.orderservice.model.OrderStatus;
 import com.microservices.orderservice.service.OrderService;
+import com.microservices.orderservice.service.OrderStatusHub;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
@@ -10,10 +12,21 @@ import io.micrometer.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/order")
@@ -22,6 +35,8 @@ import java.util.concurrent.CompletableFuture;
 public class OrderController {
     private final OrderService orderService;
     private final Tracer tracer;
+    private final ExecutorService orderPlacementExecutor;
+    private final OrderStatusHub orderStatusHub;
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @CircuitBreaker(name = "inventory", fallbackMethod = "fallbackMethod")
@@ -34,7 +49,7 @@ public class OrderController {
         // Instead of starting a new trace ID due to CompletableFuture, use the current trace ID
         Span currentSpan = tracer.nextSpan().name("OrderService-SupplyAsync");
 
-        return CompletableFuture.supplyAsync(() -> {
+        return supplyCancellableAsync(() -> {
             try (Tracer.SpanInScope spanInScope = tracer.withSpan(currentSpan.start())) {
                 return orderService.placeOrder(orderRequest);
             } finally {
@@ -43,19 +58,88 @@ public class OrderController {
         });
     }
 
-    public CompletableFuture<String> fallbackMethod(OrderRequest orderRequest, RuntimeException runtimeException) {
-        log.info("Cannot Place Order Executing Fallback logic");
-//        return CompletableFuture.supplyAsync(() -> "Oops! Inventory service is down, please try again later.");
+    /**
+     * Asynchronous order placement, for clients sending "Prefer: respond-async" (RFC 7240): the order is only
+     * validated and saved as PENDING, and processed later by OrderRequestListener, independently of inventory-service.
+     * Responds with 202 and the order number, whose status can be polled or streamed at the Location.
+     */
+    @PostMapping(headers = "Prefer=respond-async")
+    public ResponseEntity<String> acceptOrder(@RequestBody @Validated OrderRequest orderRequest) {
+        log.info("Accepting Order");
+        String orderNumber = orderService.acceptOrder(orderRequest);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/order/" + orderNumber + "/status"))
+                .header("Preference-Applied", "respond-async")
+                .body(orderNumber);
+    }
 
-        // Instead of starting a new trace ID due to CompletableFuture, use the current trace ID
-        Span currentSpan = tracer.nextSpan().name("OrderService-SupplyAsyncFallback");
+    @GetMapping("/{orderNumber}/status")
+    @ResponseStatus(HttpStatus.OK)
+    public OrderStatus getOrderStatus(@PathVariable String orderNumber) {
+        return orderService.getStatus(orderNumber)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order " + orderNumber + " not found"));
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try (Tracer.SpanInScope spanInScope = tracer.withSpan(currentSpan.start())) {
-                return "Oops! Inventory service is down, please try again later.";
-            } finally {
-                currentSpan.end(); // End the current span to ensure proper tracing
+    /**
+     * Streams the status of the order as server-sent events, instead of clients polling the endpoint above: the current
+     * status, then its changes as they happen (see OrderStatusHub), until the order is CONFIRMED or REJECTED.
+     */
+    @GetMapping(value = "/{orderNumber}/status", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<OrderStatus>> streamOrderStatus(@PathVariable String orderNumber) {
+        OrderStatus status = getOrderStatus(orderNumber);
+        if (status != OrderStatus.PENDING) {
+            return Flux.just(statusEvent(status));
+        }
+
+        // Subscribes to the changes before reading the status again, so that a change made in between is not missed
+        return orderStatusHub.subscribe(orderNumber)
+                .mergeWith(Mono.fromCallable(() -> getOrderStatus(orderNumber)))
+                .takeUntil(orderStatus -> orderStatus != OrderStatus.PENDING)
+                .map(this::statusEvent);
+    }
+
+    private ServerSentEvent<OrderStatus> statusEvent(OrderStatus status) {
+        return ServerSentEvent.builder(status).event("status").build();
+    }
+
+    /**
+     * Like CompletableFuture.supplyAsync, except that the task is interrupted when the returned future is completed
+     * from the outside, i.e. when @TimeLimiter times it out (or it is cancelled).
+     * The interrupt cancels the WebClient call blocked on, and OrderService skips its remaining stages.
+     */
+    private <T> CompletableFuture<T> supplyCancellableAsync(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicBoolean completedByTask = new AtomicBoolean();
+        Future<?> task = orderPlacementExecutor.submit(() -> {
+            T result;
+            try {
+                result = supplier.get();
+            } catch (RuntimeException e) {
+                completedByTask.set(true);
+                future.completeExceptionally(e);
+                return;
             }
+            completedByTask.set(true);
+            future.complete(result);
         });
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null && !completedByTask.get()) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    // The order itself was rejected (e.g. its total overflows), which is not because inventory-service is down
+    public CompletableFuture<String> fallbackMethod(OrderRequest orderRequest, ResponseStatusException responseStatusException) {
+        return CompletableFuture.failedFuture(responseStatusException);
+    }
+
+    // Inventory service is down (or the circuit is open), so 503: clients retry later, and OrderPlacementLimitFilter
+    // counts the request as dropped, instead of as a fast success that would raise the concurrency limit
+    public CompletableFuture<String> fallbackMethod(OrderRequest orderRequest, RuntimeException runtimeException) {
+        log.info("Cannot Place Order Executing Fallback logic");
+        return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Oops! Inventory service is down, please try again later.", runtimeException));
     }
 }
\ No newline at end of file
@@ -1,12 +1,11 @@
 package com.microservices.orderservice.dto;
 
+import com.microservices.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @Builder
 @NoArgsConstructor
@@ -14,6 +13,6 @@ import java.math.BigDecimal;
 public class OrderLineItemsDto {
     private long id;
     private String skuCode;
-    private BigDecimal price;
+    private Money price;
     private int quantity;
 }
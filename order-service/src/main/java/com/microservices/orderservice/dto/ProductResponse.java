@@ -0,0 +1,19 @@
+package com.microservices.orderservice.dto;
+
+import com.microservices.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Subset of product-service's ProductResponse, as returned by GET /api/product?fields=skuCode,price
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductResponse {
+    private String skuCode;
+    private Money price;
+}
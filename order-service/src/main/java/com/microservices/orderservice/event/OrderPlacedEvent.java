@@ -1,12 +0,0 @@
-package com.microservices.orderservice.event;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class OrderPlacedEvent {
-    private String orderNumber;
-}
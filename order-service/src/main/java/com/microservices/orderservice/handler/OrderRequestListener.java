@@ -0,0 +1,48 @@
+package com.microservices.orderservice.handler;
+
+import com.microservices.eventschema.OrderRequestedEvent;
+import com.microservices.orderservice.service.OrderEventPublisher;
+import com.microservices.orderservice.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Processes the orders accepted asynchronously (POST /api/order with "Prefer: respond-async").
+ * The events are keyed by order number, so each order is processed by one consumer, in order, while the partitions
+ * are processed in parallel (one consumer per partition). Failures are retried by the error handler, see KafkaConfig.
+ */
+@Component
+@Slf4j
+public class OrderRequestListener {
+    public static final String LISTENER_ID = "orderRequestListener";
+
+    private final OrderService orderService;
+    private final Duration republishAfter;
+
+    public OrderRequestListener(OrderService orderService,
+                                @Value("${order.async.republish-after:5m}") Duration republishAfter) {
+        this.orderService = orderService;
+        this.republishAfter = republishAfter;
+    }
+
+    @KafkaListener(id = LISTENER_ID, topics = OrderEventPublisher.ORDER_REQUESTED_TOPIC,
+            concurrency = "${order.async.concurrency:3}")
+    public void handleOrderRequested(OrderRequestedEvent orderRequestedEvent) {
+        orderService.processOrder(orderRequestedEvent.getOrderNumber());
+    }
+
+    @Scheduled(initialDelayString = "${order.async.republish-interval-ms:60000}",
+            fixedDelayString = "${order.async.republish-interval-ms:60000}")
+    public void republishPendingOrders() {
+        int republished = orderService.republishPendingOrders(Instant.now().minus(republishAfter));
+        if (republished > 0) {
+            log.warn("Republished {} orders pending for more than {}", republished, republishAfter);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.microservices.orderservice.handler;
+
+import com.microservices.eventschema.OrderStatusChangedEvent;
+import com.microservices.orderservice.model.OrderStatus;
+import com.microservices.orderservice.service.OrderEventPublisher;
+import com.microservices.orderservice.service.OrderStatusHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds OrderStatusHub with the status changes made by every order-service instance, as a client streaming the status
+ * of an order may be connected to another instance than the one processing it.
+ * Every instance consumes all the changes, with its own consumer group, and only the ones made from now on.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStatusListener {
+    private final OrderStatusHub orderStatusHub;
+
+    @KafkaListener(id = "orderStatusListener", topics = OrderEventPublisher.ORDER_STATUS_TOPIC,
+            groupId = "orderStatus-${random.uuid}", properties = "auto.offset.reset=latest")
+    public void handleOrderStatusChanged(OrderStatusChangedEvent orderStatusChangedEvent) {
+        orderStatusHub.publish(orderStatusChangedEvent.getOrderNumber(),
+                OrderStatus.valueOf(orderStatusChangedEvent.getStatus()));
+    }
+}
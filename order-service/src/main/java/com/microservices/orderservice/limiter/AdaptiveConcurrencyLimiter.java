@@ -0,0 +1,136 @@
+package com.microservices.orderservice.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit which adapts to the latency of the protected work with AIMD, as in TCP congestion control.
+ * The limit grows by 1 for every "limit" requests completing within the latency threshold, and is multiplied by 0.9
+ * when a request is slower, fails or times out. As in TCP, it is decreased at most once per round trip: the requests
+ * which were already in flight at the last decrease hit the same congestion, so they don't decrease it again.
+ * Requests above the limit are rejected right away, instead of queuing up behind requests which are already too slow.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private enum Outcome { SUCCESS, DROPPED, CANCELLED }
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThreshold;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private volatile double limit;
+    private long lastDecreaseAt;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                      MeterRegistry meterRegistry) {
+        this(name, initialLimit, minLimit, maxLimit, latencyThreshold, meterRegistry, System::nanoTime);
+    }
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                      MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThreshold = latencyThreshold.toNanos();
+        this.nanoClock = nanoClock;
+        this.lastDecreaseAt = nanoClock.getAsLong() - 1;
+
+        Tags tags = Tags.of("name", name);
+        Gauge.builder("order.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("order.concurrency.inflight", inFlight, AtomicInteger::get)
+                .tags(tags)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("order.concurrency.rejected")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a permit to be released once the work is done, or empty if the limit is reached.
+     */
+    public Optional<Permit> tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return Optional.empty();
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return Optional.of(new Permit(nanoClock.getAsLong(), current + 1));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void adjustLimit(long acquiredAt, long releasedAt, int inFlightAtAcquire, Outcome outcome) {
+        if (outcome == Outcome.DROPPED || releasedAt - acquiredAt > latencyThreshold) {
+            if (acquiredAt - lastDecreaseAt > 0) {     // Acquired after the last decrease
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseAt = releasedAt;
+            }
+        } else if (outcome == Outcome.SUCCESS && inFlightAtAcquire * 2 >= limit) {
+            // Only grow while the limit is actually used, so that it does not grow unbounded at low traffic
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public class Permit {
+        private final long acquiredAt;
+        private final int inFlightAtAcquire;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long acquiredAt, int inFlightAtAcquire) {
+            this.acquiredAt = acquiredAt;
+            this.inFlightAtAcquire = inFlightAtAcquire;
+        }
+
+        /**
+         * Releases the permit for work which completed, whose latency is taken into account.
+         */
+        public void success() {
+            release(Outcome.SUCCESS);
+        }
+
+        /**
+         * Releases the permit for work which failed or timed out, which reduces the limit.
+         */
+        public void dropped() {
+            release(Outcome.DROPPED);
+        }
+
+        /**
+         * Releases the permit for work which was cancelled, e.g. the losing request of a hedge (see RequestHedger).
+         * The cancellation itself is no sign of overload: the limit is only reduced if the work had already been
+         * running for longer than the latency threshold (e.g. cancelled by the time limiter), and is never grown.
+         */
+        public void cancelled() {
+            release(Outcome.CANCELLED);
+        }
+
+        private void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {  // Released at most once, whichever callback comes first
+                inFlight.decrementAndGet();
+                adjustLimit(acquiredAt, nanoClock.getAsLong(), inFlightAtAcquire, outcome);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.microservices.orderservice.limiter;
+
+/**
+ * Thrown when a call is rejected by an AdaptiveConcurrencyLimiter, without having been sent.
+ */
+public class LimitExceededException extends RuntimeException {
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
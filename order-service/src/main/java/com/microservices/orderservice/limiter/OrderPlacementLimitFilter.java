@@ -0,0 +1,102 @@
+package com.microservices.orderservice.limiter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Sheds POST /api/order requests above the adaptive concurrency limit with 503 Service Unavailable and Retry-After,
+ * before they take a thread from the executor (and are retried by @Retry) in OrderController.
+ * Admitted synchronous placements are counted by the inventory retry budget here, once per request, as the
+ * controller method itself runs again for every retry.
+ */
+@Component
+public class OrderPlacementLimitFilter extends OncePerRequestFilter {
+    private final AdaptiveConcurrencyLimiter orderPlacementLimiter;
+    private final RetryBudget inventoryRetryBudget;
+    private final String retryAfterSeconds;
+
+    public OrderPlacementLimitFilter(@Qualifier("orderPlacementLimiter") AdaptiveConcurrencyLimiter orderPlacementLimiter,
+                                     RetryBudget inventoryRetryBudget,
+                                     @Value("${order.concurrency-limit.retry-after:1s}") Duration retryAfter) {
+        this.orderPlacementLimiter = orderPlacementLimiter;
+        this.inventoryRetryBudget = inventoryRetryBudget;
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !(HttpMethod.POST.matches(request.getMethod()) && "/api/order".equals(request.getRequestURI()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Optional<AdaptiveConcurrencyLimiter.Permit> acquired = orderPlacementLimiter.tryAcquire();
+        if (acquired.isEmpty()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = acquired.get();
+        // Orders accepted asynchronously don't call inventory-service with @Retry (see OrderController.acceptOrder)
+        if (!"respond-async".equals(request.getHeader("Prefer"))) {
+            inventoryRetryBudget.onRequest();   // Every request earns a fraction of a retry (see RetryConfig)
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            permit.dropped();
+            throw e;
+        }
+
+        if (!request.isAsyncStarted()) {
+            release(permit, response);
+            return;
+        }
+        // The controller returns a CompletableFuture, so the work is only done when the async request completes
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                release(permit, (HttpServletResponse) event.getSuppliedResponse());
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                permit.dropped();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                permit.dropped();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    private static void release(AdaptiveConcurrencyLimiter.Permit permit, HttpServletResponse response) {
+        if (response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            permit.dropped();
+        } else {
+            permit.success();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.microservices.orderservice.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries at a percentage of the requests (as in Finagle's retry budget), so that retries cannot multiply the
+ * load on a service which is already failing.
+ * Every request deposits a fraction of a retry into the budget, and every retry withdraws a whole one. The balance
+ * is capped, so a quiet period cannot save up a retry storm.
+ */
+public class RetryBudget {
+    private static final long UNIT = 1000;  // The balance is in thousandths of a retry
+
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final Counter permitted;
+    private final Counter rejected;
+    private final Counter refunded;
+
+    /**
+     * @param retryRatio maximum retries per request, e.g. 0.1 for 10%
+     * @param maxRetries maximum retries saved up in the budget (which is full to start with)
+     */
+    public RetryBudget(String name, double retryRatio, int maxRetries, MeterRegistry meterRegistry) {
+        this.depositPerRequest = (long) (retryRatio * UNIT);
+        this.maxBalance = maxRetries * UNIT;
+        this.balance = new AtomicLong(maxBalance);
+
+        Tags tags = Tags.of("name", name);
+        Gauge.builder("order.retry.budget.balance", balance, b -> (double) b.get() / UNIT)
+                .tags(tags)
+                .register(meterRegistry);
+        this.permitted = Counter.builder("order.retry.budget.retries").tags(tags).tag("outcome", "permitted").register(meterRegistry);
+        this.rejected = Counter.builder("order.retry.budget.retries").tags(tags).tag("outcome", "rejected").register(meterRegistry);
+        this.refunded = Counter.builder("order.retry.budget.retries").tags(tags).tag("outcome", "refunded").register(meterRegistry);
+    }
+
+    public void onRequest() {
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxBalance, current + deposit));
+    }
+
+    /**
+     * Withdraws a retry from the budget, or returns false if the budget is exhausted (the call must not be retried).
+     */
+    public boolean tryRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                rejected.increment();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        permitted.increment();
+        return true;
+    }
+
+    /**
+     * Puts back a retry withdrawn by tryRetry which did not happen after all (e.g. the attempts were exhausted).
+     */
+    public void refund() {
+        balance.accumulateAndGet(UNIT, (current, refund) -> Math.min(maxBalance, current + refund));
+        refunded.increment();
+    }
+}
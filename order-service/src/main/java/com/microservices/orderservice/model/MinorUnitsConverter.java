@@ -0,0 +1,23 @@
+package com.microservices.orderservice.model;
+
+import com.microservices.money.Money;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a Money price as its long number of minor units (e.g. cents) in a BIGINT column, instead of a DECIMAL.
+ * Apply to an entity field with @Convert(converter = MinorUnitsConverter.class).
+ */
+@Converter
+public class MinorUnitsConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money price) {
+        return price == null ? null : price.minorUnits();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long minorUnits) {
+        return minorUnits == null ? null : Money.ofMinorUnits(minorUnits);
+    }
+}
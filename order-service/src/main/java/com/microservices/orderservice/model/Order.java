@@ -1,11 +1,13 @@
 package com.microservices.orderservice.model;
 
+import com.microservices.money.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.List;
 
 @Entity
@@ -18,7 +20,28 @@ public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
+    @Column(unique = true)
     private String orderNumber;
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+    private Instant createdAt;
+    @Version    // Concurrent updates of the same order (e.g. a redelivered event racing a republished one) fail
+    private Long version;
     @OneToMany(cascade = CascadeType.ALL)   // Required as OrderLineItem and Order are @Entity and share a one-to-many relationship
     private List<OrderLineItems> orderLineItemsList;
+
+    /**
+     * Sum of the line totals, leaving out the lines without a price.
+     * Added up as minor units, so that only the result is wrapped in a Money.
+     * @throws ArithmeticException if the total overflows a long
+     */
+    public Money getTotal() {
+        long total = 0;
+        for (OrderLineItems orderLineItem : orderLineItemsList) {
+            if (orderLineItem.getPrice() != null) {
+                total = Math.addExact(total, Math.multiplyExact(orderLineItem.getPrice().minorUnits(), orderLineItem.getQuantity()));
+            }
+        }
+        return Money.ofMinorUnits(total);
+    }
 }
@@ -1,13 +1,12 @@
 package com.microservices.orderservice.model;
 
+import com.microservices.money.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name="t_order_line_items")
 @Data
@@ -19,6 +18,14 @@ public class OrderLineItems {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
     private String skuCode;
-    private BigDecimal price;
+    @Convert(converter = MinorUnitsConverter.class) // Stored as BIGINT minor units (e.g. cents) instead of DECIMAL
+    private Money price;
     private int quantity;
+
+    /**
+     * Price times quantity, or null if the line has no price.
+     */
+    public Money getLineTotal() {
+        return price == null ? null : price.times(quantity);
+    }
 }
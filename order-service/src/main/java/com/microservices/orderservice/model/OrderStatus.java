@@ -0,0 +1,11 @@
+package com.microservices.orderservice.model;
+
+/**
+ * Orders placed synchronously are CONFIRMED right away. Orders accepted asynchronously are PENDING until
+ * OrderRequestListener processed them, and then CONFIRMED, or REJECTED (e.g. out of stock).
+ */
+public enum OrderStatus {
+    PENDING,
+    CONFIRMED,
+    REJECTED
+}
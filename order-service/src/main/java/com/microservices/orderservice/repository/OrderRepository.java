@@ -1,7 +1,15 @@
 package com.microservices.orderservice.repository;
 
 import com.microservices.orderservice.model.Order;
+import com.microservices.orderservice.model.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
 public interface OrderRepository extends JpaRepository<Order, Long> {
-}
\ No newline at end of file
+    Optional<Order> findByOrderNumber(String orderNumber);
+
+    List<Order> findTop100ByStatusAndCreatedAtBefore(OrderStatus status, Instant createdAt);
+}
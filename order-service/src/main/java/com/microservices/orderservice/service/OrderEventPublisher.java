@@ -0,0 +1,65 @@
+package com.microservices.orderservice.service;
+
+import com.microservices.eventschema.EventHeaders;
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.eventschema.OrderRequestedEvent;
+import com.microservices.eventschema.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the order events to Kafka, keyed by order number: all the events of an order go to the same partition,
+ * and (with the idempotent producer) are kept in order.
+ * Sends are asynchronous, so that the producer can batch them (see spring.kafka.producer.* and the kafka-throughput
+ * profile), and their outcome is recorded when the broker acknowledges them instead of being ignored.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderEventPublisher {
+    public static final String NOTIFICATION_TOPIC = "notificationTopic";
+    public static final String ORDER_REQUESTED_TOPIC = "orderRequestedTopic";
+    public static final String ORDER_STATUS_TOPIC = "orderStatusTopic";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public CompletableFuture<SendResult<String, Object>> publish(OrderPlacedEvent orderPlacedEvent) {
+        return send(NOTIFICATION_TOPIC, orderPlacedEvent.getOrderNumber(), orderPlacedEvent);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> publish(OrderRequestedEvent orderRequestedEvent) {
+        return send(ORDER_REQUESTED_TOPIC, orderRequestedEvent.getOrderNumber(), orderRequestedEvent);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> publish(OrderStatusChangedEvent orderStatusChangedEvent) {
+        return send(ORDER_STATUS_TOPIC, orderStatusChangedEvent.getOrderNumber(), orderStatusChangedEvent);
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object event) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, event);
+        EventHeaders.addSentAt(record.headers(), System.currentTimeMillis());   // For the consumers' event age metrics
+        long start = System.nanoTime();
+        return kafkaTemplate.send(record).whenComplete((result, exception) -> {
+            Timer.builder("order.events.sent")
+                    .tag("topic", topic)
+                    .tag("outcome", exception == null ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (exception != null) {
+                meterRegistry.counter("order.events.failed", "topic", topic,
+                        "exception", exception.getClass().getSimpleName()).increment();
+                log.error("Failed to publish {} for Order - {}", event.getClass().getSimpleName(), key, exception);
+            }
+        });
+    }
+}
@@ -1,39 +1,57 @@
 package com.microservices.orderservice.service;
 
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.eventschema.OrderRequestedEvent;
+import com.microservices.eventschema.OrderStatusChangedEvent;
+import com.microservices.money.Money;
 import com.microservices.orderservice.dto.InventoryRequest;
 import com.microservices.orderservice.dto.InventoryResponse;
 import com.microservices.orderservice.dto.OrderLineItemsDto;
 import com.microservices.orderservice.dto.OrderRequest;
-import com.microservices.orderservice.event.OrderPlacedEvent;
 import com.microservices.orderservice.model.Order;
 import com.microservices.orderservice.model.OrderLineItems;
+import com.microservices.orderservice.model.OrderStatus;
 import com.microservices.orderservice.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 @Slf4j
 public class OrderService {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final OrderRepository orderRepository;
     private final WebClient.Builder webClientBuilder;   // Proof that both WebClient.Builder and WebClient beans are instrumented with Micrometer correctly
     private final WebClient webClient;                  // Proof that both WebClient.Builder and WebClient beans are instrumented with Micrometer correctly
     private final ObservationRegistry observationRegistry;
     private final Tracer tracer;
-    private final KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate;
+    private final OrderEventPublisher orderEventPublisher;
+    private final ProductPriceTable productPriceTable;
+    private final MeterRegistry meterRegistry;
+    private final RequestHedger requestHedger;
 
     /**
      * Places an order via OrderRequest, which may consist of 1 or more Order. UUIDs are created for each Order
@@ -42,16 +60,8 @@ public class OrderService {
 //            contextualName = "orderService-placeOrder",
 //            lowCardinalityKeyValues = {"call", "inventory-service-from-order-service"})
     public String placeOrder(OrderRequest orderRequest) {
-        // Generate new Order, set orderNumber, map each OrderLineItemsDto to OrderLineItems, and extract skuCodes
-        Order order = new Order();
-        order.setOrderNumber(UUID.randomUUID().toString());
-
-        List<OrderLineItems> orderLineItems = orderRequest.getOrderLineItemsDtoList()
-                .stream()
-                .map(this::mapToOrderLineItem)
-                .toList();
-
-        order.setOrderLineItemsList(orderLineItems);
+        Order order = newOrder(orderRequest, OrderStatus.CONFIRMED);
+        Money total = order.getTotal();     // Validated by newOrder, before inventory-service is called
 
         List<String> skuCodes = order.getOrderLineItemsList().stream()
                 .map(OrderLineItems::getSkuCode)
@@ -66,18 +76,8 @@ public class OrderService {
         inventoryServiceObservation.lowCardinalityKeyValue("call", "inventory-service-from-order-service");
 
         return inventoryServiceObservation.observe(() -> {
-            log.info("Get request to inventory service");
             // Call inventory-service and place order if product is in stock
-            InventoryResponse[] inventoryResponseArray = webClient.get()
-                    .uri("http://inventory-service/api/inventory",
-                            uriBuilder -> uriBuilder.queryParam("skuCode", skuCodes).build())
-//                    .header("traceparent", "00-"+tracer.currentSpan().context().traceId()+"-"+tracer.currentSpan().context().spanId()+"-01")
-//                    .header("X-B3-TraceId", tracer.currentSpan().context().traceId())
-//                    .header("X-B3-SpanId", tracer.currentSpan().context().spanId())
-                    .retrieve()
-                    .bodyToMono(InventoryResponse[].class)  // Reads the response body and converts it to a Mono
-                    .block();                   // Blocks until the response is received
-            Objects.requireNonNull(tracer.currentSpan()).event("Retrieved inventory");
+            InventoryResponse[] inventoryResponseArray = lookupInventory(skuCodes);
 
             assert inventoryResponseArray != null;
             if (inventoryResponseArray.length != skuCodes.size()) {
@@ -96,28 +96,15 @@ public class OrderService {
 //                    log.info("Error detected while sleeping");
 //                    throw new RuntimeException(e);
 //                }
+                abandonIfCancelled("save");
                 orderRepository.save(order);
-                kafkaTemplate.send("notificationTopic", new OrderPlacedEvent(order.getOrderNumber()));
-
-                List<InventoryRequest> inventoryRequests = order.getOrderLineItemsList().stream()
-                        .map(orderLineItem ->
-                                InventoryRequest.builder()
-                                        .skuCode(orderLineItem.getSkuCode())
-                                        .quantity(orderLineItem.getQuantity())
-                                        .build()
-                        ).toList();
-
-                log.info("Post request to inventory service");
-                webClientBuilder.build().post()
-                        .uri("http://inventory-service/api/inventory/decrement")
-//                        .header("traceparent", "00-"+tracer.currentSpan().context().traceId()+"-"+tracer.currentSpan().context().spanId()+"-01")
-//                        .header("X-B3-TraceId", tracer.currentSpan().context().traceId())
-//                        .header("X-B3-SpanId", tracer.currentSpan().context().spanId())
-                        .bodyValue(inventoryRequests)
-                        .retrieve()
-                        .bodyToMono(Void.class)
-                        .block();
-                Objects.requireNonNull(tracer.currentSpan()).event("Decremented inventory");
+
+                abandonIfCancelled("inventory-decrement");     // Rolls back the saved order
+                decrementInventory(order);
+                log.info("Order {} placed, total {}", order.getOrderNumber(), total);
+
+                // Only once the order is committed, so that no notification is sent for a rolled back order
+                afterCommit(() -> orderEventPublisher.publish(new OrderPlacedEvent(order.getOrderNumber())));
 
                 return "Order placed successfully!";
             } else {
@@ -126,13 +113,234 @@ public class OrderService {
         });
     }
 
+    /**
+     * Accepts an order to be processed asynchronously by OrderRequestListener, so that the client doesn't wait for
+     * inventory-service. The order is saved as PENDING, and the OrderRequestedEvent is published once the transaction
+     * is committed, so that the listener finds the order.
+     */
+    public String acceptOrder(OrderRequest orderRequest) {
+        Order order = newOrder(orderRequest, OrderStatus.PENDING);
+        orderRepository.save(order);
+        afterCommit(() -> orderEventPublisher.publish(new OrderRequestedEvent(order.getOrderNumber())));
+        meterRegistry.counter("order.async.accepted").increment();
+        return order.getOrderNumber();
+    }
+
+    /**
+     * Processes an order accepted by acceptOrder: CONFIRMED (and the inventory decremented) if all its products are
+     * in stock, otherwise REJECTED. Orders which are no longer PENDING are skipped, as the event may be redelivered.
+     * Failures (e.g. inventory-service is down) are thrown, for the listener's error handler to retry. Retrying is
+     * safe once the decrement was sent, as inventory-service applies it once per order number, and the Order version
+     * makes one of two concurrent attempts (e.g. a redelivery and a republished event) fail instead of both saving.
+     */
+    public void processOrder(String orderNumber) {
+        Optional<Order> pendingOrder = findPendingOrder(orderNumber);
+        if (pendingOrder.isEmpty()) {
+            log.info("Order {} is not pending, skipping", orderNumber);
+            return;
+        }
+        Order order = pendingOrder.get();
+
+        List<String> skuCodes = order.getOrderLineItemsList().stream()
+                .map(OrderLineItems::getSkuCode)
+                .toList();
+        InventoryResponse[] inventoryResponseArray = lookupInventory(skuCodes);
+        if (inventoryResponseArray.length != skuCodes.size()
+                || !Arrays.stream(inventoryResponseArray).allMatch(InventoryResponse::isInStock)) {
+            // An earlier attempt may have decremented the inventory (and made the product out of stock itself)
+            releaseInventory(order);
+            updateStatus(order, OrderStatus.REJECTED);
+            return;
+        }
+
+        decrementInventory(order);
+        updateStatus(order, OrderStatus.CONFIRMED);
+        afterCommit(() -> orderEventPublisher.publish(new OrderPlacedEvent(orderNumber)));
+    }
+
+    /**
+     * Rejects the order if it is still PENDING, e.g. once the retries of processOrder are exhausted. Its inventory is
+     * released first, as one of the attempts may have decremented it. If inventory-service can't be reached for that,
+     * the order is left PENDING, to be processed again once it is republished (see republishPendingOrders).
+     */
+    public void rejectOrder(String orderNumber) {
+        findPendingOrder(orderNumber).ifPresent(order -> {
+            try {
+                releaseInventory(order);
+            } catch (RuntimeException e) {
+                log.warn("Cannot release the inventory of Order {}, leaving it pending", orderNumber, e);
+                return;
+            }
+            updateStatus(order, OrderStatus.REJECTED);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OrderStatus> getStatus(String orderNumber) {
+        return orderRepository.findByOrderNumber(orderNumber).map(Order::getStatus);
+    }
+
+    /**
+     * Publishes the OrderRequestedEvent again for the orders still PENDING after the given time, in case the event
+     * was lost (e.g. order-service stopped between the commit and the send).
+     */
+    public int republishPendingOrders(Instant acceptedBefore) {
+        List<Order> pendingOrders = orderRepository.findTop100ByStatusAndCreatedAtBefore(OrderStatus.PENDING, acceptedBefore);
+        pendingOrders.forEach(order -> orderEventPublisher.publish(new OrderRequestedEvent(order.getOrderNumber())));
+        return pendingOrders.size();
+    }
+
+    // Generate new Order, set orderNumber, and map each OrderLineItemsDto to OrderLineItems
+    // The order is rejected (400) if its total overflows, as the quantities (and the prices of the products not in the
+    // price table) come from the client
+    private Order newOrder(OrderRequest orderRequest, OrderStatus status) {
+        Order order = new Order();
+        order.setOrderNumber(UUID.randomUUID().toString());
+        order.setStatus(status);
+        order.setCreatedAt(Instant.now());
+
+        List<OrderLineItems> orderLineItems = orderRequest.getOrderLineItemsDtoList()
+                .stream()
+                .map(this::mapToOrderLineItem)
+                .toList();
+
+        order.setOrderLineItemsList(orderLineItems);
+        try {
+            order.getTotal();
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order total is too large", e);
+        }
+        return order;
+    }
+
+    private InventoryResponse[] lookupInventory(List<String> skuCodes) {
+        log.info("Get request to inventory service");
+        // The lookup is idempotent, so it may be hedged (sent again if it is slow, see RequestHedger)
+        InventoryResponse[] inventoryResponseArray = await("inventory-lookup", requestHedger.hedge(() -> webClient.get()
+                .uri("http://inventory-service/api/inventory",
+                        uriBuilder -> uriBuilder.queryParam("skuCode", skuCodes).build())
+//                .header("traceparent", "00-"+tracer.currentSpan().context().traceId()+"-"+tracer.currentSpan().context().spanId()+"-01")
+//                .header("X-B3-TraceId", tracer.currentSpan().context().traceId())
+//                .header("X-B3-SpanId", tracer.currentSpan().context().spanId())
+                .retrieve()
+                .bodyToMono(InventoryResponse[].class)));  // Reads the response body and converts it to a Mono, and blocks until it is received
+        Objects.requireNonNull(tracer.currentSpan()).event("Retrieved inventory");
+        return inventoryResponseArray;
+    }
+
+    // Keyed by order number, so that inventory-service only applies the decrement once, however often it is sent
+    private void decrementInventory(Order order) {
+        log.info("Post request to inventory service");
+        await("inventory-decrement", webClientBuilder.build().post()
+                .uri("http://inventory-service/api/inventory/decrement")
+                .header(IDEMPOTENCY_KEY, order.getOrderNumber())
+//                .header("traceparent", "00-"+tracer.currentSpan().context().traceId()+"-"+tracer.currentSpan().context().spanId()+"-01")
+//                .header("X-B3-TraceId", tracer.currentSpan().context().traceId())
+//                .header("X-B3-SpanId", tracer.currentSpan().context().spanId())
+                .bodyValue(inventoryRequests(order))
+                .retrieve()
+                .bodyToMono(Void.class));
+        Objects.requireNonNull(tracer.currentSpan()).event("Decremented inventory");
+    }
+
+    // Gives back the decrement sent for the order, if any (and makes inventory-service skip it if it arrives later)
+    private void releaseInventory(Order order) {
+        log.info("Release request to inventory service");
+        webClientBuilder.build().post()
+                .uri("http://inventory-service/api/inventory/release")
+                .header(IDEMPOTENCY_KEY, order.getOrderNumber())
+                .bodyValue(inventoryRequests(order))
+                .retrieve()
+                .bodyToMono(Void.class)
+                .block();
+    }
+
+    private static List<InventoryRequest> inventoryRequests(Order order) {
+        return order.getOrderLineItemsList().stream()
+                .map(orderLineItem ->
+                        InventoryRequest.builder()
+                                .skuCode(orderLineItem.getSkuCode())
+                                .quantity(orderLineItem.getQuantity())
+                                .build()
+                ).toList();
+    }
+
+    private Optional<Order> findPendingOrder(String orderNumber) {
+        return orderRepository.findByOrderNumber(orderNumber)
+                .filter(order -> order.getStatus() == OrderStatus.PENDING);
+    }
+
+    private void updateStatus(Order order, OrderStatus status) {
+        order.setStatus(status);
+        orderRepository.save(order);
+        meterRegistry.counter("order.async.processed", "status", status.name()).increment();
+        log.info("Order {} is {}", order.getOrderNumber(), status);
+        // Pushed to the clients streaming the status of the order, by whichever instance they are connected to
+        afterCommit(() -> orderEventPublisher.publish(new OrderStatusChangedEvent(order.getOrderNumber(), status.name())));
+    }
+
+    // Runs the action once the current transaction is committed (right away without a transaction, e.g. in unit tests)
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Blocks until the response is received. If the order placement is cancelled (its thread is interrupted, see
+     * OrderController), the call is cancelled too, and the order placement is abandoned.
+     */
+    private <T> T await(String stage, Mono<T> response) {
+        try {
+            return response.block();
+        } catch (RuntimeException e) {
+            if (Exceptions.unwrap(e) instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw abandoned(stage);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Abandons the order placement before the given stage, if it was cancelled (e.g. timed out by @TimeLimiter).
+     */
+    private void abandonIfCancelled(String stage) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw abandoned(stage);
+        }
+    }
+
+    private CancellationException abandoned(String stage) {
+        meterRegistry.counter("order.placement.abandoned", "stage", stage).increment();
+        log.info("Abandoning cancelled order placement at stage {}", stage);
+        return new CancellationException("Order placement cancelled at stage " + stage);
+    }
+
     /**
      * Lambda function to map 1 OrderLineItemsDto to 1 OrderLineItems.
+     * The price is taken from the local price table if the product is known, instead of trusting the client's price.
      */
     public OrderLineItems mapToOrderLineItem(OrderLineItemsDto orderLineItemsDto) {
+        Money price = productPriceTable.findPrice(orderLineItemsDto.getSkuCode())
+                .map(listPrice -> {
+                    if (orderLineItemsDto.getPrice() != null && !listPrice.equals(orderLineItemsDto.getPrice())) {
+                        log.warn("Repricing skuCode {} from {} to {}", orderLineItemsDto.getSkuCode(), orderLineItemsDto.getPrice(), listPrice);
+                    }
+                    return listPrice;
+                })
+                .orElse(orderLineItemsDto.getPrice());   // Unknown product (or table not filled yet), keep the client's price
+
         OrderLineItems orderLineItems = new OrderLineItems();
         orderLineItems.setSkuCode(orderLineItemsDto.getSkuCode());
-        orderLineItems.setPrice(orderLineItemsDto.getPrice());
+        orderLineItems.setPrice(price);
         orderLineItems.setQuantity(orderLineItemsDto.getQuantity());
         return orderLineItems;
     }
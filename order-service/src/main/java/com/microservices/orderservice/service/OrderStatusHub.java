@@ -0,0 +1,91 @@
+package com.microservices.orderservice.service;
+
+import com.microservices.orderservice.model.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of the order status changes to the clients streaming them (see OrderController), fed by
+ * OrderStatusListener with the changes made by any order-service instance.
+ * Each subscriber has its own bounded buffer: a client which doesn't keep up has its stream completed instead of
+ * buffering without limit or slowing down the other subscribers, and reads the current status when it reconnects.
+ */
+@Component
+@Slf4j
+public class OrderStatusHub {
+    private final ConcurrentMap<String, Set<Sinks.Many<OrderStatus>>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final int bufferSize;
+    private final Duration maxDuration;
+    private final Counter overflows;
+
+    public OrderStatusHub(MeterRegistry meterRegistry,
+                          @Value("${order.status-stream.buffer-size:16}") int bufferSize,
+                          @Value("${order.status-stream.max-duration:5m}") Duration maxDuration) {
+        this.bufferSize = bufferSize;
+        this.maxDuration = maxDuration;
+        this.overflows = meterRegistry.counter("order.status.subscribers.overflowed");
+        Gauge.builder("order.status.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The status changes of the order, from the moment the returned Flux is subscribed to until it is cancelled, or
+     * completed after order.status-stream.max-duration (so that abandoned streams don't stay open forever).
+     */
+    public Flux<OrderStatus> subscribe(String orderNumber) {
+        return Flux.defer(() -> {
+            Sinks.Many<OrderStatus> sink = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(bufferSize));
+            subscribers.compute(orderNumber, (key, sinks) -> {
+                Set<Sinks.Many<OrderStatus>> orderSinks = sinks == null ? new CopyOnWriteArraySet<>() : sinks;
+                orderSinks.add(sink);
+                return orderSinks;
+            });
+            subscriberCount.incrementAndGet();
+            return sink.asFlux().take(maxDuration).doFinally(signal -> unsubscribe(orderNumber, sink));
+        });
+    }
+
+    public void publish(String orderNumber, OrderStatus status) {
+        Set<Sinks.Many<OrderStatus>> orderSinks = subscribers.get(orderNumber);
+        if (orderSinks == null) {
+            return;     // Nobody is streaming this order (on this instance)
+        }
+        for (Sinks.Many<OrderStatus> sink : orderSinks) {
+            synchronized (sink) {   // The changes of an order may be published from several listener threads
+                if (sink.tryEmitNext(status) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    log.debug("Status stream of order {} overflowed, completing it", orderNumber);
+                    overflows.increment();
+                    sink.tryEmitComplete();
+                }
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void unsubscribe(String orderNumber, Sinks.Many<OrderStatus> sink) {
+        subscribers.computeIfPresent(orderNumber, (key, orderSinks) -> {
+            if (orderSinks.remove(sink)) {
+                subscriberCount.decrementAndGet();
+            }
+            return orderSinks.isEmpty() ? null : orderSinks;
+        });
+    }
+}
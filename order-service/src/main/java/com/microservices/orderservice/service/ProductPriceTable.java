@@ -0,0 +1,85 @@
+package com.microservices.orderservice.service;
+
+import com.microservices.money.Money;
+import com.microservices.orderservice.dto.ProductResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local, bounded table of product prices keyed by skuCode, so that order placement can validate prices with an
+ * in-memory lookup instead of calling product-service for every line item.
+ * The table is filled by a single bulk fetch from product-service, and refreshed in the background.
+ */
+@Component
+@Slf4j
+public class ProductPriceTable {
+    private final WebClient webClient;
+    private final boolean enabled;
+    private final int maxSize;
+
+    // Replaced as a whole on every refresh, so lookups never block and never see a half-filled table
+    private volatile Map<String, Money> prices = Collections.emptyMap();
+
+    public ProductPriceTable(WebClient webClient,
+                             @Value("${order.price-table.enabled:false}") boolean enabled,
+                             @Value("${order.price-table.max-size:10000}") int maxSize) {
+        this.webClient = webClient;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+    }
+
+    @Scheduled(initialDelayString = "${order.price-table.initial-delay-ms:0}",
+            fixedDelayString = "${order.price-table.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            // Only fetch the fields we need (see product-service's "fields" projection)
+            ProductResponse[] products = webClient.get()
+                    .uri("http://product-service/api/product",
+                            uriBuilder -> uriBuilder.queryParam("fields", "skuCode,price").build())
+                    .retrieve()
+                    .bodyToMono(ProductResponse[].class)
+                    .block();
+
+            if (products == null) {
+                return;
+            }
+
+            Map<String, Money> refreshed = new HashMap<>();
+            for (ProductResponse product : products) {
+                if (refreshed.size() >= maxSize) {
+                    log.warn("Price table is full at {} entries, skipping the remaining products", maxSize);
+                    break;
+                }
+                if (product.getSkuCode() != null && product.getPrice() != null) {
+                    refreshed.put(product.getSkuCode(), product.getPrice());
+                }
+            }
+
+            prices = Collections.unmodifiableMap(refreshed);
+            log.debug("Refreshed price table with {} products", refreshed.size());
+        } catch (RuntimeException e) {
+            // Keep serving the previous (stale) prices until product-service is reachable again
+            log.warn("Failed to refresh price table, keeping {} cached prices: {}", prices.size(), e.getMessage());
+        }
+    }
+
+    public Optional<Money> findPrice(String skuCode) {
+        return Optional.ofNullable(prices.get(skuCode));
+    }
+
+    public int size() {
+        return prices.size();
+    }
+}
@@ -0,0 +1,88 @@
+package com.microservices.orderservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Hedges the idempotent inventory lookup: if the response has not arrived after the p95 response time, a second
+ * request is sent (and PeakEwmaLoadBalancer sends it to a less loaded instance), and the first response wins.
+ * The slower request is cancelled. As only ~5% of the requests are hedged, the extra load stays around 5%.
+ * Only a pending request is hedged: when the first request fails before the delay, its error is returned right away
+ * (and retried by the caller's retry policy), instead of a hedged request being sent on top of it.
+ */
+@Component
+public class RequestHedger {
+    private static final double PERCENTILE = 0.95;
+
+    private final boolean enabled;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final Timer responseTime;
+    private final Counter hedged;
+    private final Counter hedgeWins;
+
+    public RequestHedger(MeterRegistry meterRegistry,
+                         @Value("${order.hedging.enabled:false}") boolean enabled,
+                         @Value("${order.hedging.min-delay:20ms}") Duration minDelay,
+                         @Value("${order.hedging.max-delay:1s}") Duration maxDelay) {
+        this.enabled = enabled;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.responseTime = Timer.builder("order.hedging.response.time")
+                .tag("call", "inventory-lookup")
+                .publishPercentiles(PERCENTILE)
+                .register(meterRegistry);
+        this.hedged = meterRegistry.counter("order.hedging.requests", "call", "inventory-lookup");
+        this.hedgeWins = meterRegistry.counter("order.hedging.wins", "call", "inventory-lookup");
+    }
+
+    /**
+     * @param request creates a new request on each call (e.g. a WebClient call), as it may be sent twice
+     */
+    public <T> Mono<T> hedge(Supplier<Mono<T>> request) {
+        if (!enabled) {
+            return request.get();
+        }
+
+        Duration delay = hedgeDelay();
+        Mono<T> hedgedRequest = Mono.delay(delay)
+                .then(Mono.defer(() -> {
+                    hedged.increment();
+                    return timed(request.get()).doOnNext(response -> hedgeWins.increment());
+                }))
+                // A failed hedged request leaves the first request to answer
+                .onErrorResume(error -> Mono.never());
+        // The first response or error of the first request wins, and the other request (or the delay) is cancelled
+        return Mono.firstWithSignal(timed(request.get()), hedgedRequest);
+    }
+
+    private <T> Mono<T> timed(Mono<T> request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request.doOnNext(response -> responseTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * The p95 of the recent response times, bounded by the min and max delay (the max delay is used until there is
+     * any response time).
+     */
+    Duration hedgeDelay() {
+        for (ValueAtPercentile percentile : responseTime.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == PERCENTILE && percentile.value() > 0) {
+                Duration p95 = Duration.ofNanos((long) percentile.value(TimeUnit.NANOSECONDS));
+                return p95.compareTo(minDelay) < 0 ? minDelay : p95.compareTo(maxDelay) > 0 ? maxDelay : p95;
+            }
+        }
+        return maxDelay;
+    }
+}
@@ -0,0 +1,121 @@
+package com.microservices.orderservice;
+
+import com.microservices.orderservice.limiter.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+class AdaptiveConcurrencyLimiterUnitTest {
+    private final AtomicLong nanoTime = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AdaptiveConcurrencyLimiter("inventory-call", 10, 2, 20, Duration.ofMillis(500),
+                meterRegistry, nanoTime::get);
+    }
+
+    @Test
+    @DisplayName("Requests above the limit are rejected, and counted")
+    void rejectAboveLimitTest() {
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(limiter.tryAcquire().isPresent());
+        }
+
+        Assertions.assertTrue(limiter.tryAcquire().isEmpty());
+        Assertions.assertEquals(10, limiter.getInFlight());
+        Assertions.assertEquals(1, meterRegistry.get("order.concurrency.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Limit grows while the requests are fast and the limit is used")
+    void additiveIncreaseTest() {
+        for (int round = 0; round < 10; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll();
+            nanoTime.addAndGet(Duration.ofMillis(100).toNanos());
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+        }
+
+        Assertions.assertTrue(limiter.getLimit() > 10);
+        Assertions.assertEquals(limiter.getLimit(), meterRegistry.get("order.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Limit shrinks when requests are too slow or dropped, down to the minimum limit")
+    void multiplicativeDecreaseTest() {
+        AdaptiveConcurrencyLimiter.Permit slow = limiter.tryAcquire().orElseThrow();
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        slow.success();
+        Assertions.assertEquals(9, limiter.getLimit());
+
+        // One after the other, each acquired after the previous decrease
+        for (int i = 0; i < 50; i++) {
+            nanoTime.addAndGet(Duration.ofMillis(1).toNanos());
+            limiter.tryAcquire().orElseThrow().dropped();
+        }
+        Assertions.assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Burst of concurrent drops decreases the limit once, as they hit the same congestion")
+    void burstDecreaseTest() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll();
+        nanoTime.addAndGet(Duration.ofSeconds(3).toNanos());
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::dropped);
+        Assertions.assertEquals(9, limiter.getLimit());
+
+        // The requests sent after the decrease may decrease it again
+        nanoTime.addAndGet(Duration.ofMillis(1).toNanos());
+        permits = acquireAll();
+        nanoTime.addAndGet(Duration.ofSeconds(3).toNanos());
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::dropped);
+        Assertions.assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Cancelled requests (e.g. losing hedges) leave the limit alone, unless they were already too slow")
+    void cancelledTest() {
+        for (int i = 0; i < 10; i++) {
+            AdaptiveConcurrencyLimiter.Permit losingHedge = limiter.tryAcquire().orElseThrow();
+            nanoTime.addAndGet(Duration.ofMillis(100).toNanos());
+            losingHedge.cancelled();
+        }
+        Assertions.assertEquals(10, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+
+        // Cancelled by the time limiter
+        AdaptiveConcurrencyLimiter.Permit timedOut = limiter.tryAcquire().orElseThrow();
+        nanoTime.addAndGet(Duration.ofSeconds(3).toNanos());
+        timedOut.cancelled();
+        Assertions.assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Permit is only released once")
+    void releaseOnceTest() {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+        permit.success();
+        permit.dropped();
+
+        Assertions.assertEquals(0, limiter.getInFlight());
+        Assertions.assertEquals(10, limiter.getLimit());
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquireAll() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        limiter.tryAcquire().ifPresent(permits::add);
+        while (permits.size() < limiter.getLimit()) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+        return permits;
+    }
+}
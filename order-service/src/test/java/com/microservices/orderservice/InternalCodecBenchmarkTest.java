@@ -0,0 +1,73 @@
+package com.microservices.orderservice;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.microservices.orderservice.dto.InventoryRequest;
+import com.microservices.orderservice.dto.InventoryResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the bytes and the CPU time per order of the internal calls to inventory-service (the lookup response and
+ * the decrement request), encoded as JSON and as Smile (see WebClientConfig's order.internal-codec.smile-enabled).
+ * Only reports the numbers, run with ./gradlew :order-service:benchmark.
+ */
+@Tag("benchmark")
+class InternalCodecBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(InternalCodecBenchmarkTest.class);
+    private static final int ORDERS = 100_000;
+    private static final int LINES = 3;
+    private static final TypeReference<List<InventoryRequest>> INVENTORY_REQUESTS = new TypeReference<>() {
+    };
+
+    @Test
+    @DisplayName("Benchmark: bytes and CPU time per order of the inventory calls, as JSON and as Smile")
+    void internalCodecBenchmarkTest() throws IOException {
+        List<String> skuCodes = IntStream.range(0, LINES).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        InventoryResponse[] lookupResponse = skuCodes.stream()
+                .map(skuCode -> new InventoryResponse(skuCode, true))
+                .toArray(InventoryResponse[]::new);
+        List<InventoryRequest> decrementRequest = skuCodes.stream()
+                .map(skuCode -> new InventoryRequest(skuCode, 2))
+                .toList();
+        ObjectMapper json = JsonMapper.builder().findAndAddModules().build();
+        ObjectMapper smile = SmileMapper.builder().findAndAddModules().build();
+
+        // Warm up the JIT, then measure
+        measure(json, lookupResponse, decrementRequest);
+        measure(smile, lookupResponse, decrementRequest);
+        long[] jsonResult = measure(json, lookupResponse, decrementRequest);
+        long[] smileResult = measure(smile, lookupResponse, decrementRequest);
+
+        log.info("Orders of {} lines: JSON {} bytes/order, {} ns/order; Smile {} bytes/order, {} ns/order",
+                LINES, jsonResult[0], jsonResult[1], smileResult[0], smileResult[1]);
+    }
+
+    /**
+     * Returns the bytes per order, and the nanoseconds per order to encode and decode both messages, on both sides.
+     */
+    private static long[] measure(ObjectMapper mapper, InventoryResponse[] lookupResponse,
+                                  List<InventoryRequest> decrementRequest) throws IOException {
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            byte[] lookup = mapper.writeValueAsBytes(lookupResponse);
+            byte[] decrement = mapper.writeValueAsBytes(decrementRequest);
+            bytes = lookup.length + decrement.length;
+            Assertions.assertEquals(LINES, mapper.readValue(lookup, InventoryResponse[].class).length);
+            Assertions.assertEquals(decrementRequest, mapper.readValue(decrement, INVENTORY_REQUESTS));
+        }
+        return new long[]{bytes, (System.nanoTime() - start) / ORDERS};
+    }
+}
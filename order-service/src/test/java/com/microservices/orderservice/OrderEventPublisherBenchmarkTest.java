@@ -0,0 +1,82 @@
+package com.microservices.orderservice;
+
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.orderservice.service.OrderEventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares the events per second sustained by OrderEventPublisher, with the default producer settings of
+ * application.properties and with the kafka-throughput profile on top, against an embedded Kafka broker.
+ * Only reports the numbers, run with ./gradlew :order-service:benchmark.
+ */
+@Tag("benchmark")
+@EmbeddedKafka(partitions = 3, topics = OrderEventPublisher.NOTIFICATION_TOPIC)
+class OrderEventPublisherBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderEventPublisherBenchmarkTest.class);
+    private static final int EVENTS = 100_000;
+
+    @Test
+    @DisplayName("Benchmark: events per second published with the defaults and with the kafka-throughput profile")
+    void publisherThroughputTest(EmbeddedKafkaBroker broker) throws IOException {
+        Properties defaults = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        Properties throughputProfile = new Properties();
+        throughputProfile.putAll(defaults);
+        throughputProfile.putAll(PropertiesLoaderUtils.loadProperties(new ClassPathResource("application-kafka-throughput.properties")));
+
+        // Warm up the JIT and the connections, then measure
+        measureThroughput(broker, defaults);
+        double defaultThroughput = measureThroughput(broker, defaults);
+        double profileThroughput = measureThroughput(broker, throughputProfile);
+
+        log.info("Published {} events: defaults {} events/s, kafka-throughput profile {} events/s",
+                EVENTS, Math.round(defaultThroughput), Math.round(profileThroughput));
+    }
+
+    private double measureThroughput(EmbeddedKafkaBroker broker, Properties properties) {
+        // Same producer configuration as Spring Boot builds from the spring.kafka.* properties
+        KafkaProperties kafkaProperties = new Binder(new MapConfigurationPropertySource(properties))
+                .bind("spring.kafka", KafkaProperties.class)
+                .get();
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties();
+        producerProperties.put("bootstrap.servers", broker.getBrokersAsString());
+        DefaultKafkaProducerFactory<String, Object> producerFactory = new DefaultKafkaProducerFactory<>(producerProperties);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OrderEventPublisher orderEventPublisher = new OrderEventPublisher(new KafkaTemplate<>(producerFactory), meterRegistry);
+
+        try {
+            long start = System.nanoTime();
+            CompletableFuture<?>[] sends = new CompletableFuture<?>[EVENTS];
+            for (int i = 0; i < EVENTS; i++) {
+                sends[i] = orderEventPublisher.publish(new OrderPlacedEvent(UUID.randomUUID().toString()));
+            }
+            CompletableFuture.allOf(sends).join();
+            long elapsed = System.nanoTime() - start;
+
+            Assertions.assertEquals(EVENTS, meterRegistry.get("order.events.sent").tag("outcome", "success").timer().count());
+            return EVENTS / (elapsed / 1e9);
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+}
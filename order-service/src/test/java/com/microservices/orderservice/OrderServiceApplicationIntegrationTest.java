@@ -1,6 +1,7 @@
 package com.microservices.orderservice;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.money.Money;
 import com.microservices.orderservice.dto.InventoryResponse;
 import com.microservices.orderservice.dto.OrderLineItemsDto;
 import com.microservices.orderservice.dto.OrderRequest;
@@ -66,7 +67,7 @@ public class OrderServiceApplicationIntegrationTest {
     @MockBean
     private WebClient webClient;
     private String skuCode;
-    private BigDecimal price;
+    private Money price;
     private int quantity;
     private boolean isInStock;
     private Span span;
@@ -80,12 +81,13 @@ public class OrderServiceApplicationIntegrationTest {
         dynamicPropertyRegistry.add("spring.datasource.url", sqlContainer::getJdbcUrl);
         dynamicPropertyRegistry.add("spring.datasource.username", sqlContainer::getUsername);
         dynamicPropertyRegistry.add("spring.datasource.password", sqlContainer::getPassword);
+        dynamicPropertyRegistry.add("order.price-table.enabled", () -> false);    // Do not call the mocked WebClient in the background
     }
 
     @BeforeEach
     public void setup() {
         skuCode = UUID.randomUUID().toString();
-        price = BigDecimal.valueOf(new Random().nextDouble());
+        price = Money.of(BigDecimal.valueOf(new Random().nextDouble()));
         quantity = new Random().nextInt();
         isInStock = true;
 
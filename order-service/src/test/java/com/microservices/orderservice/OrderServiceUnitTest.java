@@ -1,13 +1,22 @@
 package com.microservices.orderservice;
 
+import com.microservices.eventschema.OrderPlacedEvent;
+import com.microservices.eventschema.OrderRequestedEvent;
+import com.microservices.eventschema.OrderStatusChangedEvent;
+import com.microservices.money.Money;
 import com.microservices.orderservice.dto.InventoryResponse;
 import com.microservices.orderservice.dto.OrderLineItemsDto;
 import com.microservices.orderservice.dto.OrderRequest;
-import com.microservices.orderservice.event.OrderPlacedEvent;
 import com.microservices.orderservice.model.Order;
 import com.microservices.orderservice.model.OrderLineItems;
+import com.microservices.orderservice.model.OrderStatus;
 import com.microservices.orderservice.repository.OrderRepository;
+import com.microservices.orderservice.service.OrderEventPublisher;
 import com.microservices.orderservice.service.OrderService;
+import com.microservices.orderservice.service.ProductPriceTable;
+import com.microservices.orderservice.service.RequestHedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.tracing.Span;
 import io.micrometer.tracing.TraceContext;
 import io.micrometer.tracing.Tracer;
@@ -18,22 +27,27 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.mockito.Mockito.*;
 
@@ -51,10 +65,16 @@ class OrderServiceUnitTest {
     @Mock
     private WebClient webClient;
     @Mock
-    private KafkaTemplate<String, OrderPlacedEvent> kafkaTemplate;
+    private OrderEventPublisher orderEventPublisher;
+    @Mock
+    private ProductPriceTable productPriceTable;
+    @Mock
+    private MeterRegistry meterRegistry;
+    @Mock
+    private RequestHedger requestHedger;
     private long id;
     private String skuCode;
-    private BigDecimal price;
+    private Money price;
     private int quantity;
     private Span span;
 
@@ -63,7 +83,7 @@ class OrderServiceUnitTest {
         // Generate random values for the OrderLineItemsDto and productResponse fields
         id = new Random().nextLong();
         skuCode = UUID.randomUUID().toString();
-        price = BigDecimal.valueOf(new Random().nextDouble());
+        price = Money.of(BigDecimal.valueOf(new Random().nextDouble()));
         quantity = new Random().nextInt();
 
         // Mock all instances of the Tracer class
@@ -76,6 +96,9 @@ class OrderServiceUnitTest {
         when(traceContext.spanId()).thenReturn(UUID.randomUUID().toString());
 
         when(span.event(anyString())).thenReturn(span);
+
+        // Send the inventory lookup once, without hedging
+        when(requestHedger.hedge(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
     }
 
     @DisplayName("Order placement for multiple products, including duplicate products")
@@ -90,8 +113,8 @@ class OrderServiceUnitTest {
             }
     )
     void placeOrderTest(
-            long id1, String skuCode1, BigDecimal price1, int quantity1, boolean inStock1,
-            long id2, String skuCode2, BigDecimal price2, int quantity2, boolean inStock2
+            long id1, String skuCode1, Money price1, int quantity1, boolean inStock1,
+            long id2, String skuCode2, Money price2, int quantity2, boolean inStock2
     ) {
         OrderRequest orderRequest = mock(OrderRequest.class);
         when(orderRequest.getOrderLineItemsDtoList()).thenReturn(List.of(
@@ -182,8 +205,8 @@ class OrderServiceUnitTest {
                     orderRequest.getOrderLineItemsDtoList().stream().map(orderService::mapToOrderLineItem).toList(),
                     orderRepository.findAll().get(0).getOrderLineItemsList());
 
-            // Verify that the KafkaTemplate's send method was called exactly once with the correct parameters
-            verify(kafkaTemplate, times(1)).send(Mockito.any(String.class), Mockito.any(OrderPlacedEvent.class));
+            // Verify that the OrderEventPublisher's publish method was called exactly once with the correct parameters
+            verify(orderEventPublisher, times(1)).publish(Mockito.any(OrderPlacedEvent.class));
 
             // Verify that the webClientBuilder.build()'s get and post methods were called exactly once
             verify(webClientBuilder.build(), times(1)).get();
@@ -201,8 +224,8 @@ class OrderServiceUnitTest {
             // Verify that the repository's save method was never called
             verify(orderRepository, never()).save(Mockito.any(Order.class));
 
-            // Verify that the KafkaTemplate's send method was never called
-            verify(kafkaTemplate, never()).send(Mockito.any(String.class), Mockito.any(OrderPlacedEvent.class));
+            // Verify that the OrderEventPublisher's publish method was never called
+            verify(orderEventPublisher, never()).publish(Mockito.any(OrderPlacedEvent.class));
 
             // Verify that only 1 span event was created
             verify(span, times(1)).event(anyString());
@@ -290,6 +313,166 @@ class OrderServiceUnitTest {
         verify(span, times(1)).event(anyString());
     }
 
+    @Test
+    @DisplayName("Cancelled order placement is abandoned before saving the order")
+    void cancelledPlaceOrderTest() {
+        OrderRequest orderRequest = mock(OrderRequest.class);
+        when(orderRequest.getOrderLineItemsDtoList()).thenReturn(List.of(
+                OrderLineItemsDto.builder().skuCode(skuCode).price(price).quantity(quantity).build()
+        ));
+
+        // Mocking the WebClient methods and responses
+        InventoryResponse[] inventoryResponse = new InventoryResponse[] {
+                new InventoryResponse(skuCode, true)
+        };
+
+        WebClient.RequestHeadersUriSpec requestHeadersUriSpec = mock(WebClient.RequestHeadersUriSpec.class);
+        WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
+        WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
+        Mono mono = mock(Mono.class);
+        Counter counter = mock(Counter.class);
+
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(String.class), any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(InventoryResponse[].class)).thenReturn(mono);
+        when(meterRegistry.counter("order.placement.abandoned", "stage", "save")).thenReturn(counter);
+
+        // The inventory response arrives, but the order placement times out (interrupted by OrderController) meanwhile
+        when(mono.block()).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            return inventoryResponse;
+        });
+
+        try {
+            Assertions.assertThrows(CancellationException.class, () -> orderService.placeOrder(orderRequest));
+        } finally {
+            Thread.interrupted();   // Clear the interrupt, so that it does not leak into other tests
+        }
+
+        // Verify that the remaining stages were skipped, and counted as abandoned
+        verify(orderRepository, never()).save(Mockito.any(Order.class));
+        verify(orderEventPublisher, never()).publish(Mockito.any(OrderPlacedEvent.class));
+        verify(webClient, never()).post();
+        verify(counter, times(1)).increment();
+    }
+
+    @Test
+    @DisplayName("Order placement failing to decrement the inventory publishes no order-placed event")
+    void failedDecrementPlaceOrderTest() {
+        OrderRequest orderRequest = mock(OrderRequest.class);
+        when(orderRequest.getOrderLineItemsDtoList()).thenReturn(List.of(
+                OrderLineItemsDto.builder().skuCode(skuCode).price(price).quantity(quantity).build()
+        ));
+
+        // Mocking the WebClient methods and responses: the product is in stock, but the decrement fails
+        InventoryResponse[] inventoryResponse = new InventoryResponse[] {
+                new InventoryResponse(skuCode, true)
+        };
+
+        WebClient.RequestHeadersUriSpec requestHeadersUriSpec = mock(WebClient.RequestHeadersUriSpec.class);
+        WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
+        WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
+        WebClient.RequestBodyUriSpec requestBodyUriSpec = mock(WebClient.RequestBodyUriSpec.class);
+        WebClient.RequestBodySpec requestBodySpec = mock(WebClient.RequestBodySpec.class);
+
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(String.class), any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(InventoryResponse[].class)).thenReturn(Mono.just(inventoryResponse));
+        when(webClientBuilder.build()).thenReturn(webClient);
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(any(String.class))).thenReturn(requestBodySpec);
+        when(requestBodySpec.header(any(String.class), any())).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any(List.class))).thenReturn(requestHeadersSpec);
+        when(responseSpec.bodyToMono(Void.class)).thenReturn(Mono.error(new IllegalStateException("Inventory service unavailable")));
+
+        // The saved order is rolled back by the transaction
+        Assertions.assertThrows(IllegalStateException.class, () -> orderService.placeOrder(orderRequest));
+
+        // Verify that no notification is sent for the rolled back order
+        verify(orderEventPublisher, never()).publish(Mockito.any(OrderPlacedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Asynchronous order acceptance saves a pending order and publishes an order-requested event")
+    void acceptOrderTest() {
+        OrderRequest orderRequest = mock(OrderRequest.class);
+        when(orderRequest.getOrderLineItemsDtoList()).thenReturn(List.of(
+                OrderLineItemsDto.builder().skuCode(skuCode).price(price).quantity(quantity).build()
+        ));
+        when(meterRegistry.counter("order.async.accepted")).thenReturn(mock(Counter.class));
+
+        String orderNumber = orderService.acceptOrder(orderRequest);
+
+        // Verify that the order was saved as PENDING, without calling inventory-service
+        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository, times(1)).save(orderCaptor.capture());
+        Assertions.assertEquals(orderNumber, orderCaptor.getValue().getOrderNumber());
+        Assertions.assertEquals(OrderStatus.PENDING, orderCaptor.getValue().getStatus());
+        verify(webClient, never()).get();
+
+        // Verify that the order-requested event was published, and no order-placed event
+        verify(orderEventPublisher, times(1)).publish(new OrderRequestedEvent(orderNumber));
+        verify(orderEventPublisher, never()).publish(Mockito.any(OrderPlacedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Asynchronous order processing rejects an order with out of stock products")
+    void outOfStockProcessOrderTest() {
+        Order order = new Order();
+        order.setOrderNumber(UUID.randomUUID().toString());
+        order.setStatus(OrderStatus.PENDING);
+        order.setOrderLineItemsList(List.of(new OrderLineItems(id, skuCode, price, quantity)));
+        when(orderRepository.findByOrderNumber(order.getOrderNumber())).thenReturn(Optional.of(order));
+        when(meterRegistry.counter("order.async.processed", "status", "REJECTED")).thenReturn(mock(Counter.class));
+
+        // Mocking the WebClient methods and responses
+        InventoryResponse[] inventoryResponse = new InventoryResponse[] {
+                new InventoryResponse(skuCode, false)
+        };
+
+        WebClient.RequestHeadersUriSpec requestHeadersUriSpec = mock(WebClient.RequestHeadersUriSpec.class);
+        WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
+        WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
+        Mono mono = mock(Mono.class);
+
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(String.class), any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(InventoryResponse[].class)).thenReturn(mono);
+        when(mono.block()).thenReturn(inventoryResponse);
+        WebClient.RequestBodySpec requestBodySpec = mockInventoryPost(requestHeadersSpec, responseSpec, Mono.empty());
+
+        orderService.processOrder(order.getOrderNumber());
+
+        // Verify that the order was rejected, without decrementing the inventory nor publishing an order-placed event
+        Assertions.assertEquals(OrderStatus.REJECTED, order.getStatus());
+        verify(orderRepository, times(1)).save(order);
+        verify(orderEventPublisher, times(1)).publish(new OrderStatusChangedEvent(order.getOrderNumber(), "REJECTED"));
+        verify(orderEventPublisher, never()).publish(Mockito.any(OrderPlacedEvent.class));
+
+        // Verify that the inventory was released (and not decremented), in case an earlier attempt decremented it
+        verify(requestBodySpec, times(1)).header("Idempotency-Key", order.getOrderNumber());
+    }
+
+    @Test
+    @DisplayName("Asynchronous order processing skips orders which are no longer pending")
+    void redeliveredProcessOrderTest() {
+        Order order = new Order();
+        order.setOrderNumber(UUID.randomUUID().toString());
+        order.setStatus(OrderStatus.CONFIRMED);
+        when(orderRepository.findByOrderNumber(order.getOrderNumber())).thenReturn(Optional.of(order));
+
+        orderService.processOrder(order.getOrderNumber());
+
+        // Verify that the redelivered event had no effect
+        Assertions.assertEquals(OrderStatus.CONFIRMED, order.getStatus());
+        verify(orderRepository, never()).save(Mockito.any(Order.class));
+        verify(webClient, never()).get();
+        verify(orderEventPublisher, never()).publish(Mockito.any(OrderPlacedEvent.class));
+    }
+
     @Test
     @DisplayName("OrderLineItemsDto mapped to OrderLineItems correctly")
     void mapToOrderLineItemTest() {
@@ -306,4 +489,102 @@ class OrderServiceUnitTest {
         Assertions.assertEquals(orderLineItems.getPrice(), orderLineItemsDto.getPrice());
         Assertions.assertEquals(orderLineItems.getQuantity(), orderLineItemsDto.getQuantity());
     }
+
+    @Test
+    @DisplayName("OrderLineItemsDto is repriced from the price table")
+    void mapToOrderLineItemRepricedTest() {
+        Money listPrice = price.plus(Money.parse("1"));
+        when(productPriceTable.findPrice(skuCode)).thenReturn(Optional.of(listPrice));
+
+        OrderLineItemsDto orderLineItemsDto = OrderLineItemsDto.builder()
+                .skuCode(skuCode)
+                .price(price)
+                .quantity(quantity)
+                .build();
+
+        OrderLineItems orderLineItems = orderService.mapToOrderLineItem(orderLineItemsDto);
+
+        // Verify that the client's price is replaced by the price from the price table
+        Assertions.assertEquals(skuCode, orderLineItems.getSkuCode());
+        Assertions.assertEquals(listPrice, orderLineItems.getPrice());
+        Assertions.assertEquals(quantity, orderLineItems.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Order total is the sum of the line totals, in minor units")
+    void orderTotalTest() {
+        Order order = Order.builder()
+                .orderLineItemsList(List.of(
+                        OrderLineItems.builder().skuCode("iphone_13").price(Money.parse("10.99")).quantity(3).build(),
+                        OrderLineItems.builder().skuCode("iphone_13_red").price(Money.parse("20.98")).quantity(1).build(),
+                        OrderLineItems.builder().skuCode("unknown").quantity(2).build()     // No price
+                ))
+                .build();
+
+        Assertions.assertEquals(Money.parse("32.97"), order.getOrderLineItemsList().get(0).getLineTotal());
+        Assertions.assertEquals(Money.ofMinorUnits(5395), order.getTotal());
+    }
+
+    @Test
+    @DisplayName("Orders whose total overflows are rejected with a 400, before inventory-service is called")
+    void orderTotalOverflowTest() {
+        OrderRequest orderRequest = mock(OrderRequest.class);
+        when(orderRequest.getOrderLineItemsDtoList()).thenReturn(List.of(
+                OrderLineItemsDto.builder().skuCode(skuCode).price(Money.ofMinorUnits(Long.MAX_VALUE / 2)).quantity(3).build()
+        ));
+
+        ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
+                () -> orderService.placeOrder(orderRequest));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        Assertions.assertThrows(ResponseStatusException.class, () -> orderService.acceptOrder(orderRequest));
+
+        verify(webClient, never()).get();
+        verify(webClientBuilder, never()).build();
+        verify(orderRepository, never()).save(Mockito.any(Order.class));
+    }
+
+    @Test
+    @DisplayName("Rejecting an order releases its inventory, or leaves it pending if inventory-service is down")
+    void rejectOrderTest() {
+        Order order = new Order();
+        order.setOrderNumber(UUID.randomUUID().toString());
+        order.setStatus(OrderStatus.PENDING);
+        order.setOrderLineItemsList(List.of(new OrderLineItems(id, skuCode, price, quantity)));
+        when(orderRepository.findByOrderNumber(order.getOrderNumber())).thenReturn(Optional.of(order));
+        when(meterRegistry.counter("order.async.processed", "status", "REJECTED")).thenReturn(mock(Counter.class));
+
+        WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
+        WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
+        mockInventoryPost(requestHeadersSpec, responseSpec, Mono.error(new IllegalStateException("Inventory service unavailable")));
+
+        orderService.rejectOrder(order.getOrderNumber());
+
+        // Left pending, to be processed again once republished
+        Assertions.assertEquals(OrderStatus.PENDING, order.getStatus());
+        verify(orderRepository, never()).save(Mockito.any(Order.class));
+
+        when(responseSpec.bodyToMono(Void.class)).thenReturn(Mono.empty());
+        orderService.rejectOrder(order.getOrderNumber());
+
+        Assertions.assertEquals(OrderStatus.REJECTED, order.getStatus());
+        verify(orderRepository, times(1)).save(order);
+        verify(orderEventPublisher, times(1)).publish(new OrderStatusChangedEvent(order.getOrderNumber(), "REJECTED"));
+    }
+
+    // Mocks the POST to inventory-service (decrement or release) sent by webClientBuilder's WebClient
+    private WebClient.RequestBodySpec mockInventoryPost(WebClient.RequestHeadersSpec requestHeadersSpec,
+                                                       WebClient.ResponseSpec responseSpec, Mono<Void> response) {
+        WebClient postClient = mock(WebClient.class);
+        WebClient.RequestBodyUriSpec requestBodyUriSpec = mock(WebClient.RequestBodyUriSpec.class);
+        WebClient.RequestBodySpec requestBodySpec = mock(WebClient.RequestBodySpec.class);
+
+        when(webClientBuilder.build()).thenReturn(postClient);
+        when(postClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("http://inventory-service/api/inventory/release")).thenReturn(requestBodySpec);
+        when(requestBodySpec.header(any(String.class), any())).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any(List.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(Void.class)).thenReturn(response);
+        return requestBodySpec;
+    }
 }
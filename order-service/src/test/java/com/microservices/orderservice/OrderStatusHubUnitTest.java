@@ -0,0 +1,84 @@
+package com.microservices.orderservice;
+
+import com.microservices.orderservice.model.OrderStatus;
+import com.microservices.orderservice.service.OrderStatusHub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class OrderStatusHubUnitTest {
+
+    @Test
+    @DisplayName("Status changes are pushed to the subscribers of the order only, until they unsubscribe")
+    void publishTest() {
+        OrderStatusHub orderStatusHub = new OrderStatusHub(new SimpleMeterRegistry(), 16, Duration.ofMinutes(5));
+        List<OrderStatus> first = new CopyOnWriteArrayList<>();
+        List<OrderStatus> second = new CopyOnWriteArrayList<>();
+        List<OrderStatus> other = new CopyOnWriteArrayList<>();
+
+        Disposable firstSubscription = orderStatusHub.subscribe("order-1").subscribe(first::add);
+        Disposable secondSubscription = orderStatusHub.subscribe("order-1").subscribe(second::add);
+        Disposable otherSubscription = orderStatusHub.subscribe("order-2").subscribe(other::add);
+        Assertions.assertEquals(3, orderStatusHub.subscriberCount());
+
+        orderStatusHub.publish("order-1", OrderStatus.CONFIRMED);
+        orderStatusHub.publish("order-3", OrderStatus.REJECTED);    // Nobody subscribed
+
+        Assertions.assertEquals(List.of(OrderStatus.CONFIRMED), first);
+        Assertions.assertEquals(List.of(OrderStatus.CONFIRMED), second);
+        Assertions.assertEquals(List.of(), other);
+
+        firstSubscription.dispose();
+        secondSubscription.dispose();
+        otherSubscription.dispose();
+        Assertions.assertEquals(0, orderStatusHub.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("A subscriber which does not keep up has its stream completed once its buffer is full")
+    void overflowTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OrderStatusHub orderStatusHub = new OrderStatusHub(meterRegistry, 2, Duration.ofMinutes(5));
+        List<OrderStatus> received = new CopyOnWriteArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        // Subscriber which doesn't request anything until told to
+        BaseSubscriber<OrderStatus> slowSubscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+
+            @Override
+            protected void hookOnNext(OrderStatus status) {
+                received.add(status);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.set(true);
+            }
+        };
+        orderStatusHub.subscribe("order-1").subscribe(slowSubscriber);
+
+        orderStatusHub.publish("order-1", OrderStatus.PENDING);
+        orderStatusHub.publish("order-1", OrderStatus.PENDING);
+        orderStatusHub.publish("order-1", OrderStatus.CONFIRMED);  // Overflows the buffer of 2
+        Assertions.assertFalse(completed.get());
+
+        // The buffered changes are still delivered, and then the stream completes
+        slowSubscriber.request(10);
+        Assertions.assertEquals(List.of(OrderStatus.PENDING, OrderStatus.PENDING), received);
+        Assertions.assertTrue(completed.get());
+        Assertions.assertEquals(0, orderStatusHub.subscriberCount());
+        Assertions.assertEquals(1, meterRegistry.get("order.status.subscribers.overflowed").counter().count());
+    }
+}
@@ -0,0 +1,100 @@
+package com.microservices.orderservice;
+
+import com.microservices.orderservice.service.RequestHedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class RequestHedgerUnitTest {
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger requests;
+    private AtomicInteger cancelled;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        requests = new AtomicInteger();
+        cancelled = new AtomicInteger();
+    }
+
+    /**
+     * Stub of two inventory-service instances: the first request goes to a slow instance, the next ones to a fast one.
+     */
+    private Supplier<Mono<String>> slowInstanceStub() {
+        return () -> requests.getAndIncrement() == 0
+                ? Mono.just("slow").delayElement(Duration.ofSeconds(5)).doOnCancel(cancelled::incrementAndGet)
+                : Mono.just("fast").delayElement(Duration.ofMillis(10));
+    }
+
+    @Test
+    @DisplayName("Slow request is hedged, the hedged response wins and the slow request is cancelled")
+    void hedgedSlowInstanceTest() {
+        RequestHedger requestHedger = new RequestHedger(meterRegistry, true, Duration.ofMillis(20), Duration.ofMillis(100));
+
+        long start = System.nanoTime();
+        String response = requestHedger.hedge(slowInstanceStub()).block();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Assertions.assertEquals("fast", response);
+        Assertions.assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0);
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(1, cancelled.get());
+        Assertions.assertEquals(1, meterRegistry.get("order.hedging.requests").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("order.hedging.wins").counter().count());
+    }
+
+    @Test
+    @DisplayName("Fast request is not hedged")
+    void fastRequestNotHedgedTest() {
+        RequestHedger requestHedger = new RequestHedger(meterRegistry, true, Duration.ofMillis(500), Duration.ofSeconds(1));
+
+        String response = requestHedger.hedge(() -> Mono.just("fast")).block();
+
+        Assertions.assertEquals("fast", response);
+        Assertions.assertEquals(0, meterRegistry.get("order.hedging.requests").counter().count());
+    }
+
+    @Test
+    @DisplayName("A request failing before the delay is not hedged, and its error is returned right away")
+    void failedRequestNotHedgedTest() {
+        RequestHedger requestHedger = new RequestHedger(meterRegistry, true, Duration.ofMillis(20), Duration.ofMillis(100));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> requestHedger.hedge(() -> {
+            requests.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("Connection refused"));
+        }).block());
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(0, meterRegistry.get("order.hedging.requests").counter().count());
+    }
+
+    @Test
+    @DisplayName("A failed hedged request leaves the first request to answer")
+    void failedHedgedRequestTest() {
+        RequestHedger requestHedger = new RequestHedger(meterRegistry, true, Duration.ofMillis(20), Duration.ofMillis(50));
+
+        String response = requestHedger.hedge(() -> requests.getAndIncrement() == 0
+                ? Mono.just("slow").delayElement(Duration.ofMillis(300))
+                : Mono.<String>error(new IllegalStateException("Connection refused"))).block();
+
+        Assertions.assertEquals("slow", response);
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(0, meterRegistry.get("order.hedging.wins").counter().count());
+    }
+
+    @Test
+    @DisplayName("Hedging disabled sends the request once, even if it is slow")
+    void hedgingDisabledTest() {
+        RequestHedger requestHedger = new RequestHedger(meterRegistry, false, Duration.ofMillis(20), Duration.ofMillis(100));
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> requestHedger.hedge(slowInstanceStub()).block(Duration.ofMillis(500)));
+        Assertions.assertEquals(1, requests.get());
+    }
+}
@@ -0,0 +1,94 @@
+package com.microservices.orderservice;
+
+import com.microservices.orderservice.config.RetryConfig;
+import com.microservices.orderservice.limiter.RetryBudget;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RetryBudgetUnitTest {
+
+    @Test
+    @DisplayName("Retries are capped at the retry ratio of the requests, once the saved up retries are spent")
+    void retryRatioTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryBudget retryBudget = new RetryBudget("inventory", 0.1, 2, meterRegistry);
+
+        Assertions.assertTrue(retryBudget.tryRetry());
+        Assertions.assertTrue(retryBudget.tryRetry());
+        Assertions.assertFalse(retryBudget.tryRetry());
+
+        // 10 requests earn 1 retry
+        for (int i = 0; i < 10; i++) {
+            retryBudget.onRequest();
+        }
+        Assertions.assertTrue(retryBudget.tryRetry());
+        Assertions.assertFalse(retryBudget.tryRetry());
+
+        Assertions.assertEquals(3, meterRegistry.get("order.retry.budget.retries").tag("outcome", "permitted").counter().count());
+        Assertions.assertEquals(2, meterRegistry.get("order.retry.budget.retries").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Budget does not save up more than the maximum retries")
+    void maxRetriesTest() {
+        RetryBudget retryBudget = new RetryBudget("inventory", 0.1, 1, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 100; i++) {
+            retryBudget.onRequest();
+        }
+
+        Assertions.assertTrue(retryBudget.tryRetry());
+        Assertions.assertFalse(retryBudget.tryRetry());
+    }
+
+    private static Retry inventoryRetry(RetryBudget retryBudget) {
+        RetryConfig retryConfig = new RetryConfig();
+        io.github.resilience4j.retry.RetryConfig.Builder<Object> builder = io.github.resilience4j.retry.RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1));
+        retryConfig.inventoryRetryConfigCustomizer(retryBudget).customize(builder);
+        return RetryRegistry.of(builder.build(), retryConfig.inventoryRetryBudgetRefund(retryBudget)).retry("inventory");
+    }
+
+    @Test
+    @DisplayName("Calls timed out by the time limiter are not retried")
+    void timeoutTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryBudget retryBudget = new RetryBudget("inventory", 0.1, 10, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Assertions.assertThrows(CompletionException.class, () -> inventoryRetry(retryBudget).executeSupplier(() -> {
+            attempts.incrementAndGet();
+            throw new CompletionException(new TimeoutException("TimeLimiter 'inventory' recorded a timeout exception"));
+        }));
+
+        Assertions.assertEquals(1, attempts.get());
+        Assertions.assertEquals(10, meterRegistry.get("order.retry.budget.balance").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Only the retries which happen are withdrawn from the budget, not the one asked for on the last attempt")
+    void lastAttemptTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryBudget retryBudget = new RetryBudget("inventory", 0.1, 10, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> inventoryRetry(retryBudget).executeSupplier(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Inventory service unavailable");
+        }));
+
+        // 3 attempts, so 2 retries
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals(8, meterRegistry.get("order.retry.budget.balance").gauge().value());
+    }
+}
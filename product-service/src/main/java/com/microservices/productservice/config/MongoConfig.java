@@ -0,0 +1,51 @@
+package com.microservices.productservice.config;
+
+import com.microservices.money.Money;
+import org.bson.types.Decimal128;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+
+/**
+ * Stores Money prices as a numeric Decimal128 (e.g. 10.99), instead of an embedded {"minorUnits": 1099} document, so
+ * that the existing documents are read as is and prices can still be compared in queries.
+ * Prices stored as a String (Spring Data's default for BigDecimal, used by the oldest documents) are read too.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new MoneyToDecimal128Converter(), new Decimal128ToMoneyConverter(), new StringToMoneyConverter()));
+    }
+
+    @WritingConverter
+    static class MoneyToDecimal128Converter implements Converter<Money, Decimal128> {
+        @Override
+        public Decimal128 convert(Money money) {
+            return new Decimal128(money.toBigDecimal());
+        }
+    }
+
+    @ReadingConverter
+    static class Decimal128ToMoneyConverter implements Converter<Decimal128, Money> {
+        @Override
+        public Money convert(Decimal128 decimal128) {
+            return Money.of(decimal128.bigDecimalValue());
+        }
+    }
+
+    @ReadingConverter
+    static class StringToMoneyConverter implements Converter<String, Money> {
+        @Override
+        public Money convert(String amount) {
+            return Money.parse(amount);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Controller layer is an abstraction layer that receives requests from the client and returns responses to the client.
@@ -32,9 +33,10 @@ public class ProductController {
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public List<ProductResponse> getAllProducts() {
-        log.info("Received get product request");
-        return productService.getAllProducts();
+    public List<ProductResponse> getAllProducts(@RequestParam(required = false) Set<String> fields) {
+        // Sample request for a sparse response: http://localhost:8080/api/product?fields=id,name,price
+        log.info("Received get product request for fields: {}", fields);
+        return productService.getAllProducts(fields);
     }
 
 }
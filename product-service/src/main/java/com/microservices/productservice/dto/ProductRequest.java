@@ -1,12 +1,11 @@
 package com.microservices.productservice.dto;
 
+import com.microservices.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 /**
  * Data Transfer Object (DTO) is a design pattern that is used to transfer data between software application subsystems.
  * ProductRequest is used to receive data from the client.
@@ -16,7 +15,8 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductRequest {
+    private String skuCode;
     private String name;
     private String description;
-    private BigDecimal price;
+    private Money price;
 }
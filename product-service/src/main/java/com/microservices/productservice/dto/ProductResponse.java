@@ -1,23 +1,26 @@
 package com.microservices.productservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.microservices.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 /**
  * Data Transfer Object (DTO) is a design pattern that is used to transfer data between software application subsystems.
  * ProductResponse is used to send data to the client.
+ * Fields that were not requested via the "fields" projection are null, and are left out of the response.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductResponse {
     private String id;
+    private String skuCode;
     private String name;
     private String description;
-    private BigDecimal price;
+    private Money price;
 }
@@ -1,5 +1,6 @@
 package com.microservices.productservice.model;
 
+import com.microservices.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,8 +8,6 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.math.BigDecimal;
-
 @Document(value = "product")    // Define as a MongoDB document
 @Data   // Bundles @ToString, @EqualsAndHashCode, @Getter / @Setter and @RequiredArgsConstructor together
 @Builder
@@ -17,7 +16,8 @@ import java.math.BigDecimal;
 public class Product {
     @Id // Specify as the unique identifier
     private String id;
+    private String skuCode;
     private String name;
     private String description;
-    private BigDecimal price;
+    private Money price;    // Stored as a numeric Decimal128 (see MongoConfig)
 }
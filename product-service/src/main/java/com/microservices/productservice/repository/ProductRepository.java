@@ -8,6 +8,6 @@ import org.springframework.data.mongodb.repository.MongoRepository;
  * It receives data from the data source and converts it into a domain object for the service layer, and vice versa.
  * It is responsible for performing CRUD operations on the database.
  */
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
 
 }
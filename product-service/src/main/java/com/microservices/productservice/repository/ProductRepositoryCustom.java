@@ -0,0 +1,17 @@
+package com.microservices.productservice.repository;
+
+import com.microservices.productservice.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom repository fragment for queries that cannot be derived from method names.
+ * Spring Data picks up the implementation via the "Impl" postfix (ProductRepositoryCustomImpl).
+ */
+public interface ProductRepositoryCustom {
+    /**
+     * Returns all products, with only the given fields fetched from MongoDB (the rest are left as null).
+     */
+    List<Product> findAllWithFields(Collection<String> fields);
+}
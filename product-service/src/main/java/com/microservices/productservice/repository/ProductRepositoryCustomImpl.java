@@ -0,0 +1,27 @@
+package com.microservices.productservice.repository;
+
+import com.microservices.productservice.model.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Product> findAllWithFields(Collection<String> fields) {
+        // Push the projection down to MongoDB, so unrequested fields are never read from disk or sent over the wire
+        Query query = new Query();
+        fields.forEach(field -> query.fields().include(field));
+
+        // MongoDB always returns _id unless it is explicitly excluded
+        if (!fields.contains("id")) {
+            query.fields().exclude("id");
+        }
+        return mongoTemplate.find(query, Product.class);
+    }
+}
@@ -6,9 +6,12 @@ import com.microservices.productservice.model.Product;
 import com.microservices.productservice.repository.ProductRepository;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service layer is an abstraction layer that defines the business logic in a separate layer.
@@ -19,9 +22,13 @@ import java.util.List;
 @AllArgsConstructor
 @Slf4j
 public class ProductService {
+    // Fields of ProductResponse that can be requested via the "fields" projection
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("id", "skuCode", "name", "description", "price");
+
     private final ProductRepository productRepository;
     public void createProduct(ProductRequest productRequest) {
         Product product = Product.builder()
+                .skuCode(productRequest.getSkuCode())
                 .name(productRequest.getName())
                 .description(productRequest.getDescription())
                 .price(productRequest.getPrice())
@@ -36,9 +43,29 @@ public class ProductService {
         return products.stream().map(this::mapToProductResponse).toList();  // Using Java Stream API & Lambda Expression
     }
 
+    /**
+     * Returns all products with only the requested fields populated. If no fields are given, all fields are returned.
+     */
+    public List<ProductResponse> getAllProducts(Set<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return getAllProducts();
+        }
+
+        fields.stream()
+                .filter(field -> !PROJECTABLE_FIELDS.contains(field))
+                .findAny()
+                .ifPresent(field -> {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown product field: " + field);
+                });
+
+        List<Product> products = productRepository.findAllWithFields(fields);
+        return products.stream().map(this::mapToProductResponse).toList();
+    }
+
     public ProductResponse mapToProductResponse(Product product) {
         return ProductResponse.builder()
                 .id(product.getId())
+                .skuCode(product.getSkuCode())
                 .name(product.getName())
                 .description(product.getDescription())
                 .price(product.getPrice())
@@ -0,0 +1,99 @@
+package com.microservices.productservice;
+
+import com.microservices.money.Money;
+import com.microservices.productservice.model.Product;
+import com.microservices.productservice.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.stream.IntStream;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares the payload size and the latency of the product listing, in full and with a fields= projection (as used by
+ * the listing pages and the order-service price checks), against a MongoDB container.
+ * Only reports the numbers, run with ./gradlew :product-service:benchmark.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = ProductServiceApplication.class,
+        properties = "logging.level.com.microservices.productservice=warn"
+)
+@Testcontainers
+@AutoConfigureMockMvc
+@Tag("benchmark")
+class ProductListingBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(ProductListingBenchmarkTest.class);
+    private static final int PRODUCTS = 1000;
+    private static final int DESCRIPTION_LENGTH = 2000;
+    private static final int REQUESTS = 50;
+
+    @Container
+    static final MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:4.4.2"));
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry dynamicPropertyRegistry) {
+        dynamicPropertyRegistry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @BeforeEach
+    void setup() {
+        productRepository.deleteAll();
+        productRepository.saveAll(IntStream.range(0, PRODUCTS)
+                .mapToObj(i -> Product.builder()
+                        .skuCode("sku_" + i)
+                        .name("Product " + i)
+                        .description("x".repeat(DESCRIPTION_LENGTH))
+                        .price(Money.ofMinorUnits(1000 + i))
+                        .build())
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Benchmark: payload size and latency of the full and the projected product listing")
+    void listingBenchmarkTest() throws Exception {
+        // Warm up the JIT and the connections, then measure
+        measure("/api/product");
+        measure("/api/product?fields=name,price");
+        long[] full = measure("/api/product");
+        long[] projected = measure("/api/product?fields=name,price");
+
+        // At warn, as the logging level of the package is lowered to warn above
+        log.warn("{} products: full listing {} bytes, {} us/request; fields=name,price {} bytes, {} us/request",
+                PRODUCTS, full[0], full[1] / 1000, projected[0], projected[1] / 1000);
+    }
+
+    /**
+     * Returns the bytes of the response body, and the nanoseconds per request.
+     */
+    private long[] measure(String uri) throws Exception {
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            bytes = mockMvc.perform(MockMvcRequestBuilders.get(uri))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray().length;
+        }
+        return new long[]{bytes, (System.nanoTime() - start) / REQUESTS};
+    }
+}
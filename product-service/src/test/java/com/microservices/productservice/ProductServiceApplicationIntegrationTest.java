@@ -1,6 +1,7 @@
 package com.microservices.productservice;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.money.Money;
 import com.microservices.productservice.dto.ProductRequest;
 import com.microservices.productservice.repository.ProductRepository;
 import org.json.JSONArray;
@@ -24,7 +25,6 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
-import java.math.BigDecimal;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -67,7 +67,7 @@ public class ProductServiceApplicationIntegrationTest {
         ProductRequest productRequest = ProductRequest.builder()
                 .name("Test Product")
                 .description("Test Description")
-                .price(BigDecimal.valueOf(1.0))
+                .price(Money.parse("1.0"))
                 .build();
         String productRequestString = objectMapper.writeValueAsString(productRequest);	// Convert the object to JSON string
         mockMvc.perform(MockMvcRequestBuilders.post("/api/product")
@@ -94,7 +94,7 @@ public class ProductServiceApplicationIntegrationTest {
         ProductRequest productRequest = ProductRequest.builder()
                 .name("Test Product")
                 .description("Test Description")
-                .price(BigDecimal.valueOf(1.0))
+                .price(Money.parse("1.0"))
                 .build();
         String productRequestString = objectMapper.writeValueAsString(productRequest);
 
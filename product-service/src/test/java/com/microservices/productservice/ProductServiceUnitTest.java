@@ -1,5 +1,6 @@
 package com.microservices.productservice;
 
+import com.microservices.money.Money;
 import com.microservices.productservice.dto.ProductRequest;
 import com.microservices.productservice.dto.ProductResponse;
 import com.microservices.productservice.model.Product;
@@ -15,10 +16,12 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -31,14 +34,14 @@ class ProductServiceUnitTest {
 	private ProductService productService;
 	private String name;
 	private String description;
-	private BigDecimal price;
+	private Money price;
 
 	@BeforeEach
 	void setUp() {
 		// Generate random values for the productRequest and productResponse fields
 		name = UUID.randomUUID().toString();
 		description = UUID.randomUUID().toString();
-		price = BigDecimal.valueOf(new Random().nextDouble());
+		price = Money.of(BigDecimal.valueOf(new Random().nextDouble()));
 	}
 
 	@Test
@@ -81,8 +84,8 @@ class ProductServiceUnitTest {
 			}
 	)
 	void getAllProductsTest(
-			String id1, String name1, String description1, BigDecimal price1,
-			String id2, String name2, String description2, BigDecimal price2) {
+			String id1, String name1, String description1, Money price1,
+			String id2, String name2, String description2, Money price2) {
 		// Mocking the repository
 		when(productRepository.findAll()).thenReturn(List.of(
 				Product.builder()
@@ -128,8 +131,44 @@ class ProductServiceUnitTest {
 
 		// Verify that the mapping is correct and covers all possible fields for productResponse
 		Assertions.assertEquals(productResponse.getId(), product.getId());
+		Assertions.assertEquals(productResponse.getSkuCode(), product.getSkuCode());
 		Assertions.assertEquals(productResponse.getName(), product.getName());
 		Assertions.assertEquals(productResponse.getDescription(), product.getDescription());
 		Assertions.assertEquals(productResponse.getPrice(), product.getPrice());
 	}
+
+	@Test
+	@DisplayName("Only the requested fields are fetched and returned")
+	void getAllProductsWithFieldsTest() {
+		Set<String> fields = Set.of("name", "price");
+
+		// Mocking the repository (the projection leaves unrequested fields as null)
+		when(productRepository.findAllWithFields(fields)).thenReturn(List.of(
+				Product.builder()
+						.name(name)
+						.price(price)
+						.build()
+		));
+
+		List<ProductResponse> productResponses = productService.getAllProducts(fields);
+
+		// Verify that the projection is pushed down to the repository instead of fetching all fields
+		verify(productRepository, times(1)).findAllWithFields(fields);
+		verify(productRepository, never()).findAll();
+
+		Assertions.assertEquals(1, productResponses.size());
+		Assertions.assertNull(productResponses.get(0).getId());
+		Assertions.assertEquals(name, productResponses.get(0).getName());
+		Assertions.assertNull(productResponses.get(0).getDescription());
+		Assertions.assertEquals(price, productResponses.get(0).getPrice());
+	}
+
+	@Test
+	@DisplayName("Unknown projection fields are rejected")
+	void getAllProductsWithUnknownFieldTest() {
+		Assertions.assertThrows(ResponseStatusException.class, () -> productService.getAllProducts(Set.of("name", "unknown")));
+
+		// Verify that the repository is never queried
+		verifyNoInteractions(productRepository);
+	}
 }
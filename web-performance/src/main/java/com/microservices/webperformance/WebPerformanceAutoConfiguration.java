@@ -0,0 +1,53 @@
+package com.microservices.webperformance;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Web performance tuning shared by the REST services, enabled with web.performance.enabled=true:
+ * - gzip compression of the JSON and Smile responses above 2KB
+ * - Jackson's Blackbird module. Spring Boot registers every Module bean with the auto-configured ObjectMapper, so the
+ *   Lombok DTOs are serialized with Blackbird's generated accessors instead of reflection.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "web.performance.enabled", havingValue = "true")
+public class WebPerformanceAutoConfiguration {
+    static final String[] COMPRESSED_MIME_TYPES = {"application/json", "application/x-jackson-smile"};
+    static final DataSize COMPRESSION_MIN_RESPONSE_SIZE = DataSize.ofKilobytes(2);
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class CompressionConfiguration {
+
+        // Runs after Spring Boot's own customizer, which applies server.compression.*, so a service which configures
+        // server.compression.enabled=true itself keeps its settings
+        @Bean
+        public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> compressionCustomizer(ServerProperties serverProperties) {
+            return factory -> {
+                if (serverProperties.getCompression().getEnabled()) {
+                    return;
+                }
+                Compression compression = new Compression();
+                compression.setEnabled(true);
+                compression.setMimeTypes(COMPRESSED_MIME_TYPES);
+                compression.setMinResponseSize(COMPRESSION_MIN_RESPONSE_SIZE);
+                factory.setCompression(compression);
+            };
+        }
+    }
+}
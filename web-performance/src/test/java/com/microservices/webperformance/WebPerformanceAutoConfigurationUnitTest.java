@@ -0,0 +1,72 @@
+package com.microservices.webperformance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.util.unit.DataSize;
+
+class WebPerformanceAutoConfigurationUnitTest {
+    private final WebApplicationContextRunner contextRunner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(WebPerformanceAutoConfiguration.class,
+                    JacksonAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class));
+
+    @Test
+    @DisplayName("Disabled unless web.performance.enabled=true")
+    void disabledTest() {
+        contextRunner.run(context -> {
+            Assertions.assertFalse(context.containsBean("blackbirdModule"));
+            Assertions.assertFalse(context.containsBean("compressionCustomizer"));
+            Assertions.assertFalse(context.getBean(ObjectMapper.class).getRegisteredModuleIds()
+                    .contains(new BlackbirdModule().getTypeId()));
+        });
+    }
+
+    @Test
+    @DisplayName("Registers Blackbird with the ObjectMapper and compresses the JSON and Smile responses above 2KB")
+    void enabledTest() {
+        contextRunner.withPropertyValues("web.performance.enabled=true").run(context -> {
+            Assertions.assertTrue(context.getBean(ObjectMapper.class).getRegisteredModuleIds()
+                    .contains(new BlackbirdModule().getTypeId()));
+
+            Compression compression = customizedCompression(context.getBean("compressionCustomizer", WebServerFactoryCustomizer.class));
+            Assertions.assertTrue(compression.getEnabled());
+            Assertions.assertArrayEquals(new String[]{"application/json", "application/x-jackson-smile"}, compression.getMimeTypes());
+            Assertions.assertEquals(DataSize.ofKilobytes(2), compression.getMinResponseSize());
+        });
+    }
+
+    @Test
+    @DisplayName("A service's own server.compression.* settings take precedence")
+    void serverCompressionTest() {
+        contextRunner.withPropertyValues("web.performance.enabled=true", "server.compression.enabled=true",
+                "server.compression.mime-types=text/plain").run(context -> {
+            TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+            factory.setCompression(new Compression());
+            factory.getCompression().setMimeTypes(new String[]{"text/plain"});
+            customize(context.getBean("compressionCustomizer", WebServerFactoryCustomizer.class), factory);
+
+            Assertions.assertArrayEquals(new String[]{"text/plain"}, factory.getCompression().getMimeTypes());
+        });
+    }
+
+    private static Compression customizedCompression(WebServerFactoryCustomizer<?> customizer) {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        customize(customizer, factory);
+        return factory.getCompression();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void customize(WebServerFactoryCustomizer<?> customizer, ConfigurableServletWebServerFactory factory) {
+        ((WebServerFactoryCustomizer<ConfigurableServletWebServerFactory>) customizer).customize(factory);
+    }
+}
@@ -0,0 +1,127 @@
+package com.microservices.webperformance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the CPU time per response and the bytes on the wire of a product listing and an inventory lookup, with the
+ * defaults (reflection, no compression) and with web.performance.enabled (Blackbird, gzip above 2KB).
+ * Only reports the numbers, run with ./gradlew :web-performance:benchmark.
+ */
+@Tag("benchmark")
+class WebPerformanceBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(WebPerformanceBenchmarkTest.class);
+    private static final int RESPONSES = 20_000;
+
+    // Same shape as the services' ProductResponse and InventoryResponse
+    public static class ProductResponse {
+        private final String id;
+        private final String name;
+        private final String description;
+        private final BigDecimal price;
+
+        public ProductResponse(String id, String name, String description, BigDecimal price) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.price = price;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+    }
+
+    public static class InventoryResponse {
+        private final String skuCode;
+        private final boolean inStock;
+
+        public InventoryResponse(String skuCode, boolean inStock) {
+            this.skuCode = skuCode;
+            this.inStock = inStock;
+        }
+
+        public String getSkuCode() {
+            return skuCode;
+        }
+
+        public boolean isInStock() {
+            return inStock;
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: CPU time and bytes on the wire of the product listing and the inventory lookup")
+    void webPerformanceBenchmarkTest() throws IOException {
+        List<ProductResponse> productListing = IntStream.range(0, 50)
+                .mapToObj(i -> new ProductResponse(UUID.randomUUID().toString(), "Product " + i,
+                        "Description of product " + i + ", ".repeat(20), BigDecimal.valueOf(1000 + i, 2)))
+                .toList();
+        List<InventoryResponse> inventoryLookup = IntStream.range(0, 3)
+                .mapToObj(i -> new InventoryResponse("sku_" + i, true))
+                .toList();
+        ObjectMapper defaults = JsonMapper.builder().build();
+        ObjectMapper tuned = JsonMapper.builder().addModule(new BlackbirdModule()).build();
+
+        for (Object[] endpoint : new Object[][]{{"product listing", productListing}, {"inventory lookup", inventoryLookup}}) {
+            // Warm up the JIT, then measure
+            measure(defaults, endpoint[1], false);
+            measure(tuned, endpoint[1], true);
+            long[] defaultResult = measure(defaults, endpoint[1], false);
+            long[] tunedResult = measure(tuned, endpoint[1], true);
+
+            log.info("{}: defaults {} bytes, {} ns/response; web.performance.enabled {} bytes, {} ns/response",
+                    endpoint[0], defaultResult[0], defaultResult[1], tunedResult[0], tunedResult[1]);
+        }
+    }
+
+    /**
+     * Returns the bytes on the wire, and the nanoseconds to serialize (and compress) a response.
+     */
+    private static long[] measure(ObjectMapper mapper, Object response, boolean compress) throws IOException {
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < RESPONSES; i++) {
+            byte[] body = mapper.writeValueAsBytes(response);
+            if (compress && body.length >= WebPerformanceAutoConfiguration.COMPRESSION_MIN_RESPONSE_SIZE.toBytes()) {
+                body = gzip(body);
+            }
+            bytes = body.length;
+        }
+        return new long[]{bytes, (System.nanoTime() - start) / RESPONSES};
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}